@@ -0,0 +1,45 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.List;
+
+/**
+ * Graph sink which encodes statements exactly like the HTTP sink does, but
+ * drops every request instead of sending it.
+ */
+public class EncodingSink extends CypherGraphSink {
+
+    public EncodingSink () {
+        super(IriCorpus.ONTOLOGY_ACRONYM);
+        this.setWriters(
+            new StatementBuffer(
+                null,
+                "http://localhost:7474",
+                StatementBuffer.DEFAULT_MAX_STATEMENTS,
+                StatementBuffer.DEFAULT_MAX_BYTES,
+                false,
+                false,
+                null,
+                new Metrics(IriCorpus.ONTOLOGY_ACRONYM)
+            ) {
+                @Override
+                protected void send (JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+                    this.buffers.release(payload);
+                }
+            },
+            null
+        );
+    }
+
+    @Override
+    public void open () {}
+
+    @Override
+    public void commit () {
+        this.flush();
+    }
+
+    @Override
+    public void close () {
+        this.flush();
+    }
+}
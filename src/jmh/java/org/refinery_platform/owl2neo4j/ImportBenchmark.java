@@ -0,0 +1,242 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Jersey RESTful client */
+import com.mashape.unirest.http.Unirest;
+
+/** JSON **/
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Apache commons */
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports ontologies into an in-process mock of Neo4J and reports the
+ * throughput of the import. Without `-o` a synthetic ontology is generated.
+ * Everything after `--` is passed on to the import, e.g. to compare request
+ * sizes or requests in flight:
+ *
+ *   gradle importBenchmark -PbenchmarkArgs="--latency 5 -- --in-flight 4"
+ */
+public class ImportBenchmark {
+
+    public static void main (String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        String[] importArgs = separator < 0 ? new String[0] : Arrays.copyOfRange(args, separator + 1, args.length);
+        String[] benchmarkArgs = separator < 0 ? args : Arrays.copyOfRange(args, 0, separator);
+
+        Options options = options();
+        CommandLine cl = null;
+        try {
+            cl = new DefaultParser().parse(options, benchmarkArgs);
+        } catch (ParseException e) {
+            Owl2Neo4J.print_error(e.getMessage());
+            new HelpFormatter().printHelp("importBenchmark [options] [-- import options]", options);
+            System.exit(1);
+        }
+        if (cl.hasOption("h")) {
+            new HelpFormatter().printHelp("importBenchmark [options] [-- import options]", options);
+            return;
+        }
+
+        int classes = Integer.parseInt(cl.getOptionValue("classes", "5000"));
+        long latency = Long.parseLong(cl.getOptionValue("latency", "0"));
+        long statementLatency = Long.parseLong(cl.getOptionValue("statement-latency", "0"));
+        int serverThreads = Integer.parseInt(cl.getOptionValue("server-threads", "16"));
+
+        List<File> ontologies = new ArrayList<>();
+        boolean synthetic = !cl.hasOption("o");
+        if (synthetic) {
+            File file = File.createTempFile("bench-", ".owl");
+            file.deleteOnExit();
+            System.out.println("Generating an ontology with " + classes + " classes...");
+            SyntheticOntology.write(file, classes);
+            ontologies.add(file);
+        } else {
+            for (String path: cl.getOptionValues("o")) {
+                ontologies.add(new File(path));
+            }
+        }
+
+        MockNeo4J server = new MockNeo4J(serverThreads, latency, statementLatency);
+        server.start();
+        System.out.println(
+            "Mock Neo4J at " + server.getUrl() + ": " + serverThreads + " threads, latency " + latency +
+                " ms per request and " + statementLatency + " microseconds per statement"
+        );
+
+        JSONArray results = new JSONArray();
+        try {
+            for (File ontology: ontologies) {
+                results.put(run(server, ontology, synthetic, importArgs));
+            }
+        } finally {
+            Unirest.shutdown();
+            server.stop();
+        }
+
+        if (cl.hasOption("results")) {
+            JSONObject report = new JSONObject();
+            report.put("latencyMillis", latency);
+            report.put("statementLatencyMicros", statementLatency);
+            report.put("serverThreads", serverThreads);
+            report.put("importArgs", new JSONArray(Arrays.asList(importArgs)));
+            report.put("ontologies", results);
+            try (Writer writer = new FileWriter(cl.getOptionValue("results"))) {
+                writer.write(report.toString(2));
+            }
+        }
+    }
+
+    private static JSONObject run (MockNeo4J server, File ontology, boolean synthetic, String[] importArgs) {
+        String acronym = synthetic ?
+            SyntheticOntology.ONTOLOGY_ACRONYM :
+            FilenameUtils.getBaseName(ontology.getName()).replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+
+        List<String> args = new ArrayList<>(Arrays.asList(
+            "-o", ontology.getPath(),
+            "-n", acronym,
+            "-a", acronym,
+            "-s", server.getUrl(),
+            "-u", "neo4j",
+            "-p", "neo4j"
+        ));
+        if (synthetic) {
+            args.add("--eqp");
+            args.add(SyntheticOntology.PART_OF);
+        }
+        args.addAll(Arrays.asList(importArgs));
+
+        Owl2Neo4J ontImport = new Owl2Neo4J(args.toArray(new String[args.size()]));
+        ontImport.checkServer();
+
+        long begins = server.getBegins();
+        long writes = server.getWrites();
+        long commits = server.getCommits();
+        long requests = server.getRequests();
+        long statements = server.getStatements();
+        long bytesReceived = server.getBytesReceived();
+        long bytesDecoded = server.getBytesDecoded();
+
+        ontImport.importOntologies();
+
+        begins = server.getBegins() - begins;
+        writes = server.getWrites() - writes;
+        commits = server.getCommits() - commits;
+        requests = server.getRequests() - requests;
+        statements = server.getStatements() - statements;
+        bytesReceived = server.getBytesReceived() - bytesReceived;
+        bytesDecoded = server.getBytesDecoded() - bytesDecoded;
+        int classes = Math.max(1, ontImport.classes_imported);
+        double writeSeconds = ontImport.write_time / 1e9;
+
+        System.out.println("---");
+        System.out.println(acronym + ": " + ontImport.classes_imported + " classes");
+        System.out.println(
+            "  Phases:     loading " + millis(ontImport.load_time) +
+                ", extraction " + millis(ontImport.extraction_time) +
+                " (classification " + millis(ontImport.classification_time) + ")" +
+                ", writing " + millis(ontImport.write_time)
+        );
+        System.out.println(
+            "  Requests:   " + requests + " (" + begins + " begin, " + writes + " statements, " + commits + " commit), " +
+                String.format("%.1f", requests / writeSeconds) + " per second of writing"
+        );
+        System.out.println(
+            "  Statements: " + statements + ", " + String.format("%.0f", statements / writeSeconds) +
+                " per second of writing, " + String.format("%.1f", (double) statements / classes) + " per class"
+        );
+        System.out.println(
+            "  Bytes:      " + bytesReceived + " sent" +
+                (bytesReceived != bytesDecoded ? " (" + bytesDecoded + " uncompressed)" : "") +
+                ", " + (bytesReceived / classes) + " per class"
+        );
+
+        JSONObject result = new JSONObject();
+        result.put("ontology", ontology.getPath());
+        result.put("classes", ontImport.classes_imported);
+        result.put("loadMillis", TimeUnit.NANOSECONDS.toMillis(ontImport.load_time));
+        result.put("extractionMillis", TimeUnit.NANOSECONDS.toMillis(ontImport.extraction_time));
+        result.put("classificationMillis", TimeUnit.NANOSECONDS.toMillis(ontImport.classification_time));
+        result.put("writeMillis", TimeUnit.NANOSECONDS.toMillis(ontImport.write_time));
+        result.put("requests", requests);
+        result.put("statements", statements);
+        result.put("bytesSent", bytesReceived);
+        result.put("bytesUncompressed", bytesDecoded);
+        result.put("statementsPerSecond", statements / writeSeconds);
+        result.put("requestsPerSecond", requests / writeSeconds);
+        result.put("bytesPerClass", bytesReceived / classes);
+        return result;
+    }
+
+    private static String millis (long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos) + " ms";
+    }
+
+    private static Options options () {
+        Options options = new Options();
+
+        options.addOption(Option.builder("h")
+            .longOpt("help")
+            .desc("Shows this help")
+            .build());
+
+        options.addOption(Option.builder("o")
+            .argName("Path")
+            .hasArgs()
+            .longOpt("owl")
+            .desc("Ontologies to import [Default: a generated ontology]")
+            .build());
+
+        options.addOption(Option.builder()
+            .argName("Number")
+            .hasArg()
+            .longOpt("classes")
+            .desc("Number of classes of the generated ontology [Default: 5000]")
+            .build());
+
+        options.addOption(Option.builder()
+            .argName("Milliseconds")
+            .hasArg()
+            .longOpt("latency")
+            .desc("Latency of every request [Default: 0]")
+            .build());
+
+        options.addOption(Option.builder()
+            .argName("Microseconds")
+            .hasArg()
+            .longOpt("statement-latency")
+            .desc("Additional latency per statement of a request [Default: 0]")
+            .build());
+
+        options.addOption(Option.builder()
+            .argName("Number")
+            .hasArg()
+            .longOpt("server-threads")
+            .desc("Number of requests the mock handles at the same time [Default: 16]")
+            .build());
+
+        options.addOption(Option.builder()
+            .argName("Path")
+            .hasArg()
+            .longOpt("results")
+            .desc("Write the results as JSON to this file")
+            .build());
+
+        return options;
+    }
+}
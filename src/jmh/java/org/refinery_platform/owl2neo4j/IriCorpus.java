@@ -0,0 +1,76 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.Random;
+
+/**
+ * Class IRIs shaped like the ones found in real ontologies. The same seed
+ * always yields the same corpus.
+ */
+public class IriCorpus {
+
+    public static final String ONTOLOGY_URI = "http://www.co-ode.org/ontologies/pizza/pizza.owl";
+    public static final String ONTOLOGY_ACRONYM = "PIZZA";
+
+    // `mixed` draws from all of them
+    public static final String[] KINDS = {"obo", "fragment", "slash"};
+
+    private static final String[] OBO_ID_SPACES = {"GO", "CHEBI", "CL", "UBERON", "HP", "DOID", "PATO"};
+    private static final String[] FRAGMENT_ONTOLOGIES = {
+        ONTOLOGY_URI,
+        "http://www.w3.org/2002/07/owl",
+        "http://purl.org/obo/owl/FMA",
+        "http://www.ebi.ac.uk/efo/efo.owl"
+    };
+    private static final String[] SLASH_PREFIXES = {
+        "http://dbpedia.org/resource/",
+        "http://example.org/ontology/class/",
+        "http://purl.bioontology.org/ontology/MESH/"
+    };
+    private static final String[] WORDS = {
+        "American", "Hot", "Margherita", "Mozzarella", "Topping", "Cheese", "Vegetarian", "Spicy", "Base",
+        "Deep", "Pan", "Thin", "Crust", "Pepper", "Onion", "Mushroom", "Caper", "Anchovy"
+    };
+
+    /**
+     * @param kind `obo` for OBO style IDs like `GO_0008150`, `fragment` for
+     *   names after a `#`, `slash` for IRIs ending with a slash or `mixed`.
+     */
+    public static String[] iris (String kind, int size) {
+        Random random = new Random(42);
+        String[] iris = new String[size];
+        for (int i = 0; i < size; i++) {
+            String k = kind.equals("mixed") ? KINDS[random.nextInt(KINDS.length)] : kind;
+            iris[i] = iri(k, random);
+        }
+        return iris;
+    }
+
+    private static String iri (String kind, Random random) {
+        switch (kind) {
+            case "obo":
+                return "http://purl.obolibrary.org/obo/" +
+                    OBO_ID_SPACES[random.nextInt(OBO_ID_SPACES.length)] + "_" +
+                    String.format("%07d", random.nextInt(10000000));
+            case "fragment":
+                String ontology = FRAGMENT_ONTOLOGIES[random.nextInt(FRAGMENT_ONTOLOGIES.length)];
+                if (ontology.endsWith("FMA")) {
+                    // OBO style IDs behind a fragment
+                    return ontology + "#FMA_" + random.nextInt(100000);
+                }
+                return ontology + "#" + name(random);
+            case "slash":
+                return SLASH_PREFIXES[random.nextInt(SLASH_PREFIXES.length)] + name(random) + "/";
+            default:
+                throw new IllegalArgumentException("Unknown IRI kind " + kind);
+        }
+    }
+
+    private static String name (Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JMH */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing and looking up the label of a class and writing it, once per
+ * class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final String[] LANGUAGES = {"en", "de", "fr", "es"};
+
+    // Number of labels per class, in different languages
+    @Param({"1", "4"})
+    public int labels;
+
+    private OWLOntology ontology;
+    private LabelIndex index;
+    private Owl2Neo4J.Label[] classLabels;
+    private String[] uris;
+    private EncodingSink sink;
+    private int next = 0;
+
+    @Setup
+    public void setUp () throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        this.ontology = manager.createOntology(IRI.create(IriCorpus.ONTOLOGY_URI));
+
+        this.uris = IriCorpus.iris("mixed", SIZE);
+        Set<OWLAxiom> axioms = new HashSet<>();
+        for (int i = 0; i < SIZE; i++) {
+            OWLClass c = dataFactory.getOWLClass(IRI.create(this.uris[i]));
+            axioms.add(dataFactory.getOWLDeclarationAxiom(c));
+            for (int l = 0; l < this.labels; l++) {
+                axioms.add(dataFactory.getOWLAnnotationAssertionAxiom(
+                    dataFactory.getRDFSLabel(),
+                    c.getIRI(),
+                    dataFactory.getOWLLiteral("label's " + i + " in " + LANGUAGES[l], LANGUAGES[l])
+                ));
+            }
+        }
+        manager.addAxioms(this.ontology, axioms);
+
+        this.index = this.index();
+        this.classLabels = new Owl2Neo4J.Label[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.classLabels[i] = this.index.get(this.uris[i]);
+        }
+
+        this.sink = new EncodingSink();
+    }
+
+    @TearDown
+    public void tearDown () {
+        this.sink.close();
+    }
+
+    private int next () {
+        return this.next++ & (SIZE - 1);
+    }
+
+    /**
+     * Indexes the labels of all classes, reported per class.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public LabelIndex index () {
+        LabelIndex index = new LabelIndex(Collections.singletonList("en"));
+        index.index(this.ontology);
+        return index;
+    }
+
+    @Benchmark
+    public Owl2Neo4J.Label getLabel () {
+        return this.index.get(this.uris[this.next()]);
+    }
+
+    /**
+     * Writes the label and its language the way every class is written.
+     */
+    @Benchmark
+    public void storeLabel () {
+        int i = this.next();
+        Owl2Neo4J.Label label = this.classLabels[i];
+        this.sink.setProperty(Owl2Neo4J.CLASS_NODE_LABEL, this.uris[i], "rdfs:label", label.getText());
+        this.sink.setProperty(Owl2Neo4J.CLASS_NODE_LABEL, this.uris[i], "labelLang", label.getLang());
+    }
+}
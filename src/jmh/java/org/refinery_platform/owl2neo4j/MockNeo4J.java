@@ -0,0 +1,186 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JSON **/
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process stand-in for the parts of Neo4J's HTTP API used by
+ * `RestGraphSink`: the root and `/db/data` checks and the transactional
+ * endpoint. Every statement succeeds. Requests are delayed by a fixed latency
+ * plus a latency per statement to mimic the server's work.
+ */
+public class MockNeo4J {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final long statementLatencyMicros;
+
+    private final AtomicInteger transactions = new AtomicInteger(0);
+
+    // Requests by kind
+    private final AtomicLong begins = new AtomicLong(0);
+    private final AtomicLong writes = new AtomicLong(0);
+    private final AtomicLong commits = new AtomicLong(0);
+
+    private final AtomicLong statements = new AtomicLong(0);
+    private final AtomicLong bytesReceived = new AtomicLong(0);  // As sent, i.e. possibly gzipped
+    private final AtomicLong bytesDecoded = new AtomicLong(0);
+
+    /**
+     * @param threads Number of requests handled at the same time.
+     */
+    public MockNeo4J (int threads, long latencyMillis, long statementLatencyMicros) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.statementLatencyMicros = statementLatencyMicros;
+        // Port 0 picks a free port
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle (HttpExchange exchange) throws IOException {
+                try {
+                    MockNeo4J.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public void start () {
+        this.server.start();
+    }
+
+    public void stop () {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    public String getUrl () {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    public long getBegins () {
+        return this.begins.get();
+    }
+
+    public long getWrites () {
+        return this.writes.get();
+    }
+
+    public long getCommits () {
+        return this.commits.get();
+    }
+
+    /**
+     * All requests except the ones checking the server.
+     */
+    public long getRequests () {
+        return this.begins.get() + this.writes.get() + this.commits.get();
+    }
+
+    public long getStatements () {
+        return this.statements.get();
+    }
+
+    public long getBytesReceived () {
+        return this.bytesReceived.get();
+    }
+
+    public long getBytesDecoded () {
+        return this.bytesDecoded.get();
+    }
+
+    private void handle (HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            // `checkServer` only needs some JSON
+            respond(exchange, 200, "{}", null);
+            return;
+        }
+
+        byte[] body = read(exchange.getRequestBody());
+        this.bytesReceived.addAndGet(body.length);
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = read(new GZIPInputStream(new ByteArrayInputStream(body)));
+        }
+        this.bytesDecoded.addAndGet(body.length);
+
+        JSONArray requestStatements = new JSONObject(
+            new JSONTokener(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))
+        ).getJSONArray("statements");
+        int count = requestStatements.length();
+
+        String path = exchange.getRequestURI().getPath();
+        String location = null;
+        if (path.endsWith("/commit")) {
+            this.commits.incrementAndGet();
+        } else if (path.equals(RestGraphSink.TRANSACTION_ENDPOINT) && count == 0) {
+            this.begins.incrementAndGet();
+            location = this.getUrl() + RestGraphSink.TRANSACTION_ENDPOINT + "/" + this.transactions.incrementAndGet();
+        } else {
+            this.writes.incrementAndGet();
+        }
+        this.statements.addAndGet(count);
+
+        try {
+            long delay = TimeUnit.MILLISECONDS.toMicros(this.latencyMillis) + count * this.statementLatencyMicros;
+            if (delay > 0) {
+                TimeUnit.MICROSECONDS.sleep(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        StringBuilder response = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < count; i++) {
+            response.append(i == 0 ? "" : ",").append("{\"columns\":[],\"data\":[]}");
+        }
+        response.append("],\"errors\":[]}");
+        respond(exchange, location == null ? 200 : 201, response.toString(), location);
+    }
+
+    private static void respond (HttpExchange exchange, int status, String body, String location) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (location != null) {
+            exchange.getResponseHeaders().set("Location", location);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] read (InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JMH */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collecting the existential restrictions among the superclasses of a class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestrictionVisitorBenchmark {
+
+    private static final int SIZE = 1024;
+
+    // Number of existential restrictions per class. Every class has a named superclass as well.
+    @Param({"1", "4", "16"})
+    public int restrictions;
+
+    // Superclass expressions of every class
+    private OWLClassExpression[][] superClasses;
+    private Owl2Neo4J.RestrictionVisitor visitor = new Owl2Neo4J.RestrictionVisitor();
+    private int next = 0;
+
+    @Setup
+    public void setUp () {
+        OWLDataFactory dataFactory = OWLManager.getOWLDataFactory();
+        String[] iris = IriCorpus.iris("mixed", SIZE);
+        OWLObjectProperty[] properties = {
+            dataFactory.getOWLObjectProperty(IRI.create("http://purl.obolibrary.org/obo/BFO_0000050")),
+            dataFactory.getOWLObjectProperty(IRI.create(IriCorpus.ONTOLOGY_URI + "#hasTopping")),
+            dataFactory.getOWLObjectProperty(IRI.create(IriCorpus.ONTOLOGY_URI + "#hasBase"))
+        };
+
+        Random random = new Random(42);
+        this.superClasses = new OWLClassExpression[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            OWLClassExpression[] expressions = new OWLClassExpression[this.restrictions + 1];
+            expressions[0] = dataFactory.getOWLClass(IRI.create(iris[random.nextInt(SIZE)]));
+            for (int r = 1; r <= this.restrictions; r++) {
+                expressions[r] = dataFactory.getOWLObjectSomeValuesFrom(
+                    properties[random.nextInt(properties.length)],
+                    dataFactory.getOWLClass(IRI.create(iris[random.nextInt(SIZE)]))
+                );
+            }
+            this.superClasses[i] = expressions;
+        }
+    }
+
+    @Benchmark
+    public Set<Owl2Neo4J.Tuple<OWLObjectPropertyExpression, OWLClass>> visit () {
+        Owl2Neo4J.RestrictionVisitor visitor = new Owl2Neo4J.RestrictionVisitor();
+        for (OWLClassExpression superClass: this.superClasses[this.next++ & (SIZE - 1)]) {
+            superClass.accept(visitor);
+        }
+        return visitor.getRestrictions();
+    }
+
+    /**
+     * Reuses one visitor like `RestrictionIndex` does.
+     */
+    @Benchmark
+    public Set<Owl2Neo4J.Tuple<OWLObjectPropertyExpression, OWLClass>> visitReused () {
+        this.visitor.clear();
+        for (OWLClassExpression superClass: this.superClasses[this.next++ & (SIZE - 1)]) {
+            superClass.accept(this.visitor);
+        }
+        return this.visitor.getRestrictions();
+    }
+}
@@ -0,0 +1,76 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JMH */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and encoding the statements of nodes and relationships, i.e.
+ * everything the HTTP sink does before a request is sent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+    private static final int SIZE = 4096;
+
+    @Param({"obo", "fragment", "slash", "mixed"})
+    public String corpus;
+
+    private String[] uris;
+    private String[] ontIDs;
+    private EncodingSink sink;
+    private int next = 0;
+
+    @Setup
+    public void setUp () {
+        this.uris = IriCorpus.iris(this.corpus, SIZE);
+        this.ontIDs = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.ontIDs[i] = Owl2Neo4J.getOntID(this.uris[i], IriCorpus.ONTOLOGY_URI, IriCorpus.ONTOLOGY_ACRONYM);
+        }
+        this.sink = new EncodingSink();
+    }
+
+    @TearDown
+    public void tearDown () {
+        this.sink.close();
+    }
+
+    /**
+     * A node is merged, labeled and named, i.e. three statements.
+     */
+    @Benchmark
+    public void createNode () {
+        int i = this.next++ & (SIZE - 1);
+        this.sink.createNode(Owl2Neo4J.CLASS_NODE_LABEL, this.uris[i], this.ontIDs[i]);
+    }
+
+    @Benchmark
+    public void createRelationship () {
+        int i = this.next++ & (SIZE - 1);
+        this.sink.createRelationship(
+            Owl2Neo4J.CLASS_NODE_LABEL,
+            this.uris[i],
+            Owl2Neo4J.CLASS_NODE_LABEL,
+            this.uris[(i + 1) & (SIZE - 1)],
+            "RDFS:subClassOf"
+        );
+    }
+}
@@ -0,0 +1,73 @@
+package org.refinery_platform.owl2neo4j;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * OBO-like ontology of a given size: a random class tree with some classes
+ * having a second parent, a label for every class and `part of`
+ * restrictions. The same size always yields the same ontology.
+ */
+public class SyntheticOntology {
+
+    public static final String ONTOLOGY_URI = "http://purl.obolibrary.org/obo/bench.owl";
+    public static final String ONTOLOGY_ACRONYM = "BENCH";
+    public static final String PART_OF = "http://purl.obolibrary.org/obo/BFO_0000050";
+
+    // Share of classes with a second parent or a `part of` restriction
+    private static final double SECOND_PARENTS = 0.2;
+    private static final double RESTRICTIONS = 0.3;
+
+    /**
+     * Writes the ontology as RDF/XML.
+     */
+    public static void write (File file, int classes) throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        OWLOntology ontology = manager.createOntology(IRI.create(ONTOLOGY_URI));
+        OWLObjectProperty partOf = dataFactory.getOWLObjectProperty(IRI.create(PART_OF));
+
+        Random random = new Random(42);
+        OWLClass[] owlClasses = new OWLClass[classes];
+        Set<OWLAxiom> axioms = new HashSet<>();
+        for (int i = 0; i < classes; i++) {
+            owlClasses[i] = dataFactory.getOWLClass(
+                IRI.create(String.format("http://purl.obolibrary.org/obo/%s_%07d", ONTOLOGY_ACRONYM, i))
+            );
+            axioms.add(dataFactory.getOWLDeclarationAxiom(owlClasses[i]));
+            axioms.add(dataFactory.getOWLAnnotationAssertionAxiom(
+                dataFactory.getRDFSLabel(),
+                owlClasses[i].getIRI(),
+                dataFactory.getOWLLiteral("class " + i, "en")
+            ));
+            if (i == 0) {
+                continue;
+            }
+            axioms.add(dataFactory.getOWLSubClassOfAxiom(owlClasses[i], owlClasses[random.nextInt(i)]));
+            if (random.nextDouble() < SECOND_PARENTS) {
+                axioms.add(dataFactory.getOWLSubClassOfAxiom(owlClasses[i], owlClasses[random.nextInt(i)]));
+            }
+            if (random.nextDouble() < RESTRICTIONS) {
+                axioms.add(dataFactory.getOWLSubClassOfAxiom(
+                    owlClasses[i],
+                    dataFactory.getOWLObjectSomeValuesFrom(partOf, owlClasses[random.nextInt(i)])
+                ));
+            }
+        }
+        manager.addAxioms(ontology, axioms);
+        manager.saveOntology(ontology, new RDFXMLOntologyFormat(), IRI.create(file.toURI()));
+    }
+}
@@ -0,0 +1,80 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JMH */
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning classes into URIs and ontology IDs, which happens for every class
+ * and every class it references.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriBenchmark {
+
+    // Power of two so that the next IRI can be picked with a mask
+    private static final int SIZE = 4096;
+
+    @Param({"obo", "fragment", "slash", "mixed"})
+    public String corpus;
+
+    private String[] iris;
+    private String[] classStrings;
+    private OWLClass[] classes;
+    private int next = 0;
+
+    @Setup
+    public void setUp () {
+        OWLDataFactory dataFactory = OWLManager.getOWLDataFactory();
+        this.iris = IriCorpus.iris(this.corpus, SIZE);
+        this.classStrings = new String[SIZE];
+        this.classes = new OWLClass[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.classes[i] = dataFactory.getOWLClass(IRI.create(this.iris[i]));
+            this.classStrings[i] = this.classes[i].toString();
+        }
+    }
+
+    private int next () {
+        return this.next++ & (SIZE - 1);
+    }
+
+    @Benchmark
+    public String extractUri () {
+        return Owl2Neo4J.extractUri(this.classStrings[this.next()]);
+    }
+
+    /**
+     * Like the import does it, i.e. including rendering the class.
+     */
+    @Benchmark
+    public String extractUriOfClass () {
+        return Owl2Neo4J.extractUri(this.classes[this.next()].toString());
+    }
+
+    @Benchmark
+    public String getOntID () {
+        return Owl2Neo4J.getOntID(this.iris[this.next()], IriCorpus.ONTOLOGY_URI, IriCorpus.ONTOLOGY_ACRONYM);
+    }
+}
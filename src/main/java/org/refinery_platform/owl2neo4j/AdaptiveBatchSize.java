@@ -0,0 +1,57 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of statements per request, adapted to the latency of the server.
+ *
+ * The size grows by a fixed step after every request answered within the
+ * target latency and is halved after a request timed out or the server ran
+ * out of memory. Requests slower than the target keep the size as it is, so
+ * the size settles where requests take about the target latency. Requests
+ * may be answered by several threads at the same time.
+ */
+public class AdaptiveBatchSize {
+
+    // Max. size as a multiple of the initial size
+    private static final int MAX_GROWTH = 10;
+
+    private final int min;
+    private final int max;
+    private final int step;
+    private final long targetNanos;
+
+    private int size;
+
+    /**
+     * @param initial Number of statements per request to start with.
+     * @param targetLatency Milliseconds a request should take at most.
+     */
+    public AdaptiveBatchSize (int initial, int targetLatency) {
+        this.size = Math.max(1, initial);
+        this.min = 1;
+        this.max = this.size * MAX_GROWTH;
+        this.step = Math.max(1, this.size / 10);
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+    }
+
+    public synchronized int get () {
+        return this.size;
+    }
+
+    /**
+     * Records the latency of a successful request.
+     */
+    public synchronized void completed (long nanos) {
+        if (nanos < this.targetNanos) {
+            this.size = Math.min(this.max, this.size + this.step);
+        }
+    }
+
+    /**
+     * Records a request which failed as it was too much for the server.
+     */
+    public synchronized void overloaded () {
+        this.size = Math.max(this.min, this.size / 2);
+    }
+}
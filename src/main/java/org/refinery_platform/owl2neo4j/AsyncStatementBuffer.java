@@ -0,0 +1,131 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Statement buffer which doesn't wait for the response of a request before
+ * building and sending the next one. Up to a fixed number of requests are in
+ * flight at the same time, which hides the network latency between us and
+ * Neo4J.
+ *
+ * Neo4J doesn't allow concurrent requests within one transaction, so every
+ * request is sent to the auto-commit endpoint and committed on its own.
+ * Requests may complete in any order, hence a request which matches nodes
+ * created by an earlier request is held back until that request has been
+ * committed.
+ */
+public class AsyncStatementBuffer extends StatementBuffer {
+
+    private final String url;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+
+    // URI of a node -> request creating it. Requests remove their nodes once committed.
+    private final ConcurrentMap<String, Request> pendingNodes = new ConcurrentHashMap<>();
+
+    private Request request = new Request();
+
+    public AsyncStatementBuffer (HttpTransport transport, String url, int maxStatements, int maxBytes, int maxInFlight, boolean gzip, boolean verbose, Logger cqlLogger, Metrics metrics) {
+        super(transport, url, maxStatements, maxBytes, Math.max(1, maxInFlight), gzip, verbose, cqlLogger, metrics);
+        this.url = url;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.executor = Executors.newFixedThreadPool(this.maxInFlight);
+    }
+
+    @Override
+    protected void added (Collection<String> nodesCreated, Collection<String> nodesMatched) {
+        this.dependOn(nodesMatched);
+        // Merging a node concurrently with the request creating it might create it twice.
+        this.dependOn(nodesCreated);
+        for (String uri: nodesCreated) {
+            this.pendingNodes.put(uri, this.request);
+            this.request.nodes.add(uri);
+        }
+    }
+
+    private void dependOn (Collection<String> uris) {
+        for (String uri: uris) {
+            Request creator = this.pendingNodes.get(uri);
+            if (creator != null && creator != this.request) {
+                this.request.dependencies.add(creator);
+            }
+        }
+    }
+
+    @Override
+    protected void send (final JsonBuffer payload, final IntList offsets, final List<String> errorTitles, final String kind) {
+        final Request request = this.request;
+        this.request = new Request();
+
+        try {
+            this.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Owl2Neo4J.print_error("Interrupted while waiting for requests in flight");
+            System.exit(1);
+        }
+
+        this.executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Dependencies have been sent earlier and never wait for later requests, so this can't deadlock.
+                    for (Request dependency: request.dependencies) {
+                        dependency.committed.await();
+                    }
+                    post(url, payload, offsets, errorTitles, kind);
+                    for (String uri: request.nodes) {
+                        pendingNodes.remove(uri, request);
+                    }
+                    request.committed.countDown();
+                    // Later requests might still reference this one, which shouldn't keep its dependencies alive.
+                    request.dependencies.clear();
+                    request.nodes.clear();
+                } catch (InterruptedException e) {
+                    Owl2Neo4J.print_error("Interrupted while waiting for a request");
+                    System.exit(1);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends the buffered statements and waits until all requests in flight
+     * have been committed.
+     */
+    @Override
+    public void flush () {
+        this.sendBuffer();
+        try {
+            this.inFlight.acquire(this.maxInFlight);
+            this.inFlight.release(this.maxInFlight);
+        } catch (InterruptedException e) {
+            Owl2Neo4J.print_error("Interrupted while waiting for requests in flight");
+            System.exit(1);
+        }
+    }
+
+    public void shutdown () {
+        this.executor.shutdown();
+    }
+
+    private static class Request {
+        final Set<Request> dependencies = new LinkedHashSet<>();
+        final List<String> nodes = new ArrayList<>();
+        final CountDownLatch committed = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,245 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Neo4J Bolt driver */
+import org.neo4j.driver.v1.AuthToken;
+import org.neo4j.driver.v1.AuthTokens;
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.GraphDatabase;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Writes to Neo4J using the binary Bolt protocol over one persistent
+ * connection. Everything is written within one transaction which is committed
+ * when the sink is closed, unless periodic commits are enabled.
+ */
+public class BoltGraphSink extends CypherGraphSink {
+
+    public static String SCHEME = "bolt://";
+
+    private final String serverUrl;
+    private final String user;
+    private final String password;
+    private final WriteOptions options;
+    private final String bulkNodeLabel;
+    private final boolean verbose;
+    private final Logger cqlLogger;
+    private final Metrics metrics;
+    private final PeriodicCommit periodicCommit;
+
+    private Driver driver;
+    private Session session;
+    private Transaction transaction;
+
+    public BoltGraphSink (String serverUrl, String user, String password, String ontologyLabel, String bulkNodeLabel, WriteOptions options, boolean verbose, Logger cqlLogger, Metrics metrics) {
+        super(ontologyLabel);
+        this.serverUrl = serverUrl;
+        this.user = user;
+        this.password = password;
+        this.bulkNodeLabel = bulkNodeLabel;
+        this.options = options;
+        this.verbose = verbose;
+        this.cqlLogger = cqlLogger;
+        this.metrics = metrics;
+        this.periodicCommit = new PeriodicCommit(
+            options.statementsPerCommit,
+            options.secondsPerCommit,
+            verbose
+        );
+    }
+
+    public static boolean isBoltUrl (String url) {
+        return url != null && url.toLowerCase().startsWith(SCHEME);
+    }
+
+    private static AuthToken authToken (String user, String password) {
+        if (user == null) {
+            return AuthTokens.none();
+        }
+        return AuthTokens.basic(user, password);
+    }
+
+    public static void checkServer (String serverUrl, String user, String password, boolean verbose) {
+        try {
+            if (verbose) {
+                System.out.println("Checking Neo4J at " + serverUrl + "... " + Owl2Neo4J.ANSI_DIM);
+            } else {
+                System.out.print("Checking Neo4J at " + serverUrl + "... ");
+            }
+
+            // Connecting already verifies the credentials
+            Driver driver = GraphDatabase.driver(serverUrl, authToken(user, password));
+            try (Session session = driver.session()) {
+                session.run("RETURN 1").consume();
+            } finally {
+                driver.close();
+            }
+
+            if (verbose) {
+                System.out.println(Owl2Neo4J.ANSI_RESET + "Checking Neo4J at " + serverUrl + "... " + Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            } else {
+                System.out.println(Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error("Error connecting to Neo4J via Bolt");
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public void open () {
+        try {
+            this.driver = GraphDatabase.driver(this.serverUrl, authToken(this.user, this.password));
+            this.session = this.driver.session();
+            this.transaction = this.session.beginTransaction();
+            if (this.verbose) {
+                System.out.println("Transaction initialized via Bolt.");
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + "Error initiating transaction");
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+
+        StatementWriter statementWriter = new BoltStatementWriter(this.options.statementsPerRequest);
+
+        BulkWriter bulkWriter = null;
+        if (this.options.bulk) {
+            bulkWriter = new BulkWriter(
+                statementWriter,
+                this.bulkNodeLabel,
+                this.ontologyLabel,
+                this.options.rowsPerChunk
+            );
+        }
+
+        this.setWriters(statementWriter, bulkWriter);
+    }
+
+    @Override
+    public void commit () {
+        this.flush();
+        this.commitChunk();
+        this.transaction = this.session.beginTransaction();
+    }
+
+    @Override
+    public void close () {
+        this.flush();
+        try {
+            this.commitChunk();
+            this.periodicCommit.printSummary();
+        } finally {
+            this.session.close();
+            this.driver.close();
+        }
+    }
+
+    private void commitChunk () {
+        long start = System.nanoTime();
+        try {
+            this.transaction.success();
+            this.transaction.close();
+            this.metrics.request(Metrics.COMMIT, System.nanoTime() - start, 0, 0);
+            if (this.verbose) {
+                System.out.println("Transaction committed via Bolt.");
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + "Error committing transaction");
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+        if (this.periodicCommit.isEnabled()) {
+            this.periodicCommit.committed(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sends statements without waiting for their results and checks the
+     * results of a whole batch at once, which lets the driver pipeline the
+     * statements over the connection. The time from sending the first
+     * statement of a batch until all of its results have been received is
+     * recorded as request latency.
+     */
+    private class BoltStatementWriter implements StatementWriter {
+
+        private final int maxStatements;
+
+        private List<String> statements = new ArrayList<>();
+        private List<String> errorTitles = new ArrayList<>();
+        private List<StatementResult> results = new ArrayList<>();
+        // Kind of the batched statements unless they are mixed
+        private StatementWriter.Kind kind;
+        private boolean mixed;
+        private long start;
+
+        BoltStatementWriter (int maxStatements) {
+            this.maxStatements = Math.max(1, maxStatements);
+        }
+
+        @Override
+        public void add (StatementWriter.Kind kind, String cql, Map<String, Object> parameters, String errorTitle, Collection<String> nodesCreated, Collection<String> nodesMatched) {
+            if (verbose) {
+                System.out.println("CQL: " + cql + " " + parameters);
+                cqlLogger.info(cql + " " + parameters);
+            }
+
+            if (this.statements.isEmpty()) {
+                this.start = System.nanoTime();
+                this.kind = kind;
+                this.mixed = false;
+            } else if (this.kind != kind) {
+                this.mixed = true;
+            }
+            metrics.statement(kind);
+            this.statements.add(cql);
+            this.errorTitles.add(errorTitle);
+            try {
+                this.results.add(transaction.run(cql, parameters));
+            } catch (Exception e) {
+                this.fail(this.statements.size() - 1, e);
+            }
+
+            if (this.statements.size() >= this.maxStatements) {
+                this.flush();
+            }
+        }
+
+        @Override
+        public void flush () {
+            for (int i = 0; i < this.results.size(); i++) {
+                try {
+                    this.results.get(i).consume();
+                } catch (Exception e) {
+                    this.fail(i, e);
+                }
+            }
+            if (!this.results.isEmpty()) {
+                metrics.request(this.mixed ? Metrics.MIXED : this.kind.key(), System.nanoTime() - this.start, 0, 0);
+            }
+            periodicCommit.sent(this.results.size());
+            if (periodicCommit.isDue()) {
+                commitChunk();
+                transaction = session.beginTransaction();
+            }
+            this.statements.clear();
+            this.errorTitles.clear();
+            this.results.clear();
+        }
+
+        private void fail (int i, Exception e) {
+            Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + this.errorTitles.get(i));
+            Owl2Neo4J.print_error("CQL: " + this.statements.get(i));
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects class nodes and relationships as rows and writes them with a few
+ * `UNWIND` statements per chunk instead of one statement per node, label,
+ * property and relationship.
+ *
+ * Relationship types can't be parameterized in Cypher, so relationship rows
+ * are grouped by type and every type gets its own statement. Nodes of a chunk
+ * are always written before its relationships.
+ */
+public class BulkWriter {
+
+    public static int DEFAULT_CHUNK_SIZE = 5000;
+
+    private final StatementWriter statementWriter;
+    private final String nodeLabel;
+    private final String ontologyLabel;
+    private final int chunkSize;
+
+    // URI -> properties of the node. Only properties that are known are set so that a later row for the same node
+    // doesn't remove properties written by an earlier chunk.
+    private Map<String, Map<String, String>> nodes = new LinkedHashMap<>();
+    // Relationship type -> (source URI, destination URI)
+    private Map<String, Set<List<String>>> relationships = new LinkedHashMap<>();
+    private int rows = 0;
+
+    public BulkWriter (StatementWriter statementWriter, String nodeLabel, String ontologyLabel, int chunkSize) {
+        this.statementWriter = statementWriter;
+        this.nodeLabel = nodeLabel;
+        this.ontologyLabel = ontologyLabel;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public void addNode (String uri) {
+        this.nodeProperties(uri);
+        this.flushIfFull();
+    }
+
+    public void setProperty (String uri, String name, String value) {
+        this.nodeProperties(uri).put(name, value);
+        this.flushIfFull();
+    }
+
+    public void addRelationship (String srcUri, String destUri, String type) {
+        if (!this.relationships.containsKey(type)) {
+            this.relationships.put(type, new LinkedHashSet<List<String>>());
+        }
+        if (this.relationships.get(type).add(Arrays.asList(srcUri, destUri))) {
+            this.rows++;
+        }
+        this.flushIfFull();
+    }
+
+    private Map<String, String> nodeProperties (String uri) {
+        Map<String, String> properties = this.nodes.get(uri);
+        if (properties == null) {
+            properties = new LinkedHashMap<>();
+            this.nodes.put(uri, properties);
+            this.rows++;
+        }
+        return properties;
+    }
+
+    private void flushIfFull () {
+        if (this.rows >= this.chunkSize) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Hands all collected rows over to the statement writer.
+     */
+    public void flush () {
+        if (!this.nodes.isEmpty()) {
+            List<Object> rows = new ArrayList<>(this.nodes.size());
+            for (Map.Entry<String, Map<String, String>> node: this.nodes.entrySet()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("uri", node.getKey());
+                row.put("props", node.getValue());
+                rows.add(row);
+            }
+            String cql = "UNWIND {rows} AS row MERGE (n:`" + this.nodeLabel + "` {uri:row.uri}) SET n :`" + this.ontologyLabel + "` SET n += row.props;";
+            this.statementWriter.add(StatementWriter.Kind.NODE, cql, parameters(rows), "Error creating nodes", this.nodes.keySet(), Collections.<String>emptyList());
+        }
+
+        for (Map.Entry<String, Set<List<String>>> type: this.relationships.entrySet()) {
+            List<Object> rows = new ArrayList<>(type.getValue().size());
+            Set<String> endpoints = new LinkedHashSet<>();
+            for (List<String> relationship: type.getValue()) {
+                endpoints.addAll(relationship);
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("src", relationship.get(0));
+                row.put("dest", relationship.get(1));
+                rows.add(row);
+            }
+            String cql = "UNWIND {rows} AS row MATCH (src:`" + this.nodeLabel + "` {uri:row.src}), (dest:`" + this.nodeLabel + "` {uri:row.dest}) MERGE (src)-[:`" + type.getKey() + "`]->(dest);";
+            this.statementWriter.add(StatementWriter.Kind.RELATIONSHIP, cql, parameters(rows), "Error creating relationships", Collections.<String>emptySet(), endpoints);
+        }
+
+        // Rows are referenced by the statement writer until they are sent so we start over with new collections.
+        this.nodes = new LinkedHashMap<>();
+        this.relationships = new LinkedHashMap<>();
+        this.rows = 0;
+    }
+
+    public String getNodeLabel () {
+        return this.nodeLabel;
+    }
+
+    private static Map<String, Object> parameters (List<Object> rows) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("rows", rows);
+        return parameters;
+    }
+}
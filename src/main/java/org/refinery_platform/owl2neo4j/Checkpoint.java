@@ -0,0 +1,121 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JSON **/
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records how far an import got so that a failed import can be resumed
+ * instead of starting from scratch: which ontologies have been imported
+ * completely and, for every ontology being imported, the last class up to
+ * which everything has been committed. Classes are imported in the order of
+ * their URIs, so that's all it takes to continue.
+ *
+ * The file is replaced atomically where the file system supports it, i.e.
+ * it's always either the old or the new checkpoint. Concurrent imports of a batch share one checkpoint.
+ */
+public class Checkpoint {
+
+    public static int DEFAULT_INTERVAL = 10000;
+
+    private final File file;
+
+    private Set<String> completed = new LinkedHashSet<>();
+    private Map<String, String> lastClasses = new TreeMap<>();  // Ontology -> URI of the last committed class
+
+    public Checkpoint (File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads a checkpoint written by a previous run. A missing file is an empty
+     * checkpoint.
+     */
+    public static Checkpoint load (File file) throws Exception {
+        Checkpoint checkpoint = new Checkpoint(file);
+        if (!file.isFile()) {
+            return checkpoint;
+        }
+
+        try (Reader reader = new FileReader(file)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            JSONArray completed = json.getJSONArray("completed");
+            for (int i = 0; i < completed.length(); i++) {
+                checkpoint.completed.add(completed.getString(i));
+            }
+            if (json.has("lastClasses")) {
+                JSONObject lastClasses = json.getJSONObject("lastClasses");
+                for (Object ontology: lastClasses.keySet()) {
+                    checkpoint.lastClasses.put((String) ontology, lastClasses.getString((String) ontology));
+                }
+            }
+        }
+        return checkpoint;
+    }
+
+    public synchronized boolean isCompleted (String ontology) {
+        return this.completed.contains(ontology);
+    }
+
+    /**
+     * @return URI of the last class which has been committed or `null` if the
+     *   import of the ontology has to start from the beginning.
+     */
+    public synchronized String getLastClass (String ontology) {
+        return this.lastClasses.get(ontology);
+    }
+
+    public synchronized void committed (String ontology, String lastClass) throws IOException {
+        this.lastClasses.put(ontology, lastClass);
+        this.save();
+    }
+
+    public synchronized void completed (String ontology) throws IOException {
+        this.completed.add(ontology);
+        this.lastClasses.remove(ontology);
+        this.save();
+    }
+
+    /**
+     * Removes the checkpoint once everything has been imported.
+     */
+    public synchronized void delete () {
+        this.file.delete();
+    }
+
+    private void save () throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("completed", new JSONArray(this.completed));
+        if (!this.lastClasses.isEmpty()) {
+            json.put("lastClasses", this.lastClasses);
+        }
+
+        File directory = this.file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(this.file.getName(), ".tmp", directory);
+        try {
+            Files.write(tmp.toPath(), json.toString(2).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // E.g. some network file systems; replacing is the best we can do there
+                Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+}
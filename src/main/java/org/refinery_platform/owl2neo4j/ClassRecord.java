@@ -0,0 +1,42 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything extracted from the ontology and the reasoner for a single class,
+ * i.e. all the information needed to write the class without touching the
+ * OWL API again.
+ */
+public class ClassRecord {
+
+    /**
+     * Reference to another class, e.g. a superclass or a restriction filler.
+     */
+    public static class Reference {
+        public final String uri;
+        public final String ontID;
+        // Relationship type for restrictions
+        public final String relationship;
+
+        public Reference (String uri, String ontID, String relationship) {
+            this.uri = uri;
+            this.ontID = ontID;
+            this.relationship = relationship;
+        }
+    }
+
+    public final String uri;
+    public final String ontID;
+    public String label;
+    public String labelLang;
+
+    public final List<Reference> superClasses = new ArrayList<>();
+    public final List<Reference> restrictions = new ArrayList<>();
+    public final List<Reference> equivalentClasses = new ArrayList<>();
+
+    public ClassRecord (String uri, String ontID) {
+        this.uri = uri;
+        this.ontID = ontID;
+    }
+}
@@ -0,0 +1,184 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams relationships into CSV files that can be loaded into an empty
+ * database with `neo4j-admin import`, and collects the nodes for the node
+ * files.
+ *
+ * Nodes are identified by their URI and every node is written exactly once,
+ * also across the files of a batch export: exporters of the same export
+ * share a `CsvNodeTable`, which merges the labels and properties a node gets
+ * from every ontology and writes all node files once the export is done. A
+ * node's properties are kept by the exporter until it is complete, i.e. until
+ * the class it represents has been visited, or until the exporter is closed
+ * for nodes that are only referenced, and by the table after that.
+ *
+ * Property values are written as they are, e.g. labels aren't escaped for
+ * Cypher.
+ *
+ * Example:
+ * neo4j-admin import --nodes ./csv/GO.nodes.csv --relationships ./csv/GO.relationships.csv
+ */
+public class CsvExporter implements GraphSink {
+
+    public static String[] NODE_PROPERTIES = {"name", "rdfs:label", "labelLang", "acronym", "version"};
+
+    private final String directory;
+    private final String ontologyLabel;
+    private final boolean verbose;
+
+    private BufferedWriter relationshipWriter;
+    private File nodeFile;
+    private File relationshipFile;
+
+    // Nodes which have been created but not completed yet: URI -> labels and properties
+    private Map<String, Set<String>> pendingLabels = new LinkedHashMap<>();
+    private Map<String, Map<String, String>> pendingProperties = new LinkedHashMap<>();
+    // Nodes of all exporters of the export. Shared by concurrent imports of a batch.
+    private final CsvNodeTable nodes;
+    private long relationships = 0;
+
+    /**
+     * @param nodes Nodes of all files of the same export, which are written
+     *   by `CsvNodeTable.write` once the export is done.
+     */
+    public CsvExporter (String directory, String ontologyLabel, CsvNodeTable nodes, boolean verbose) {
+        this.directory = directory;
+        this.ontologyLabel = ontologyLabel;
+        this.nodes = nodes;
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void open () throws IOException {
+        File dir = new File(this.directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Couldn't create export directory `" + this.directory + "`");
+        }
+
+        this.nodeFile = new File(dir, this.ontologyLabel + ".nodes.csv");
+        this.relationshipFile = new File(dir, this.ontologyLabel + ".relationships.csv");
+        this.nodes.addFile(this.nodeFile);
+        this.relationshipWriter = Files.newBufferedWriter(this.relationshipFile.toPath(), StandardCharsets.UTF_8);
+
+        this.relationshipWriter.write(":START_ID,:END_ID,:TYPE");
+        this.relationshipWriter.newLine();
+    }
+
+    @Override
+    public void createNode (String nodeLabel, String uri, String name) {
+        if (!this.pendingLabels.containsKey(uri)) {
+            Set<String> labels = new LinkedHashSet<>();
+            labels.add(nodeLabel);
+            labels.add(this.ontologyLabel);
+            this.pendingLabels.put(uri, labels);
+            this.pendingProperties.put(uri, new LinkedHashMap<String, String>());
+        }
+        this.setProperty(nodeLabel, uri, "name", name);
+    }
+
+    @Override
+    public void setProperty (String nodeLabel, String uri, String name, String value) {
+        if (this.pendingProperties.containsKey(uri)) {
+            this.pendingProperties.get(uri).put(name, value);
+        }
+    }
+
+    /**
+     * Hands a node on to the node table as soon as all of its properties are
+     * known.
+     */
+    @Override
+    public void completeNode (String nodeLabel, String uri) {
+        if (!this.pendingLabels.containsKey(uri)) {
+            return;
+        }
+        this.nodes.define(this.nodeFile, uri, this.pendingLabels.remove(uri), this.pendingProperties.remove(uri));
+    }
+
+    @Override
+    public void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String type) throws IOException {
+        this.relationshipWriter.write(quote(srcUri));
+        this.relationshipWriter.write(",");
+        this.relationshipWriter.write(quote(destUri));
+        this.relationshipWriter.write(",");
+        this.relationshipWriter.write(quote(type));
+        this.relationshipWriter.newLine();
+        this.relationships++;
+    }
+
+    /**
+     * CSV files are imported into empty databases only, so there is nothing to remove.
+     */
+    @Override
+    public void removeProperty (String nodeLabel, String uri, String propertyName) throws Exception {
+        throw new Exception("The CSV export doesn't support removing properties");
+    }
+
+    @Override
+    public void deleteRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) throws Exception {
+        throw new Exception("The CSV export doesn't support deleting relationships");
+    }
+
+    @Override
+    public void commit () throws IOException {
+        this.relationshipWriter.flush();
+    }
+
+    /**
+     * Hands the nodes which have only been referenced on to the node table
+     * and closes the relationship file. The node file is written by the node
+     * table.
+     */
+    @Override
+    public void close () throws IOException {
+        for (Map.Entry<String, Set<String>> node: this.pendingLabels.entrySet()) {
+            this.nodes.reference(this.nodeFile, node.getKey(), node.getValue(), this.pendingProperties.get(node.getKey()));
+        }
+        this.pendingLabels.clear();
+        this.pendingProperties.clear();
+
+        this.relationshipWriter.close();
+
+        if (this.verbose) {
+            System.out.println("Exported " + this.relationships + " relationships to " + this.relationshipFile);
+        }
+    }
+
+    public File getNodeFile () {
+        return this.nodeFile;
+    }
+
+    public File getRelationshipFile () {
+        return this.relationshipFile;
+    }
+
+    /**
+     * @return The number of nodes written to the node file, which is only
+     *   known once the node table has been written.
+     */
+    public long getNodeCount () {
+        return this.nodes.getNodeCount(this.nodeFile);
+    }
+
+    public long getRelationshipCount () {
+        return this.relationships;
+    }
+
+    /**
+     * Quotes a CSV field. Quotes inside the field are escaped by doubling them.
+     */
+    static String quote (String field) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,143 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Apache commons */
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The nodes of a CSV export, merged across all ontologies of a batch before
+ * any of them is written.
+ *
+ * `neo4j-admin import` expects every node exactly once in all node files, but
+ * a class may be referenced by several ontologies, and by some of them before
+ * the ontology defining it has been exported. Rows are therefore only written
+ * once the whole export is done: every node gets the labels of all ontologies
+ * referencing it, like the `SET n:X` of the other sinks, and the properties of
+ * the ontology defining it, i.e. completing it. It's written to the node file
+ * of that ontology, or of the first one referencing it if none defines it.
+ *
+ * Shared by the exporters of a batch, which may run concurrently. Holds the
+ * properties of every node until `write` is called.
+ */
+public class CsvNodeTable {
+
+    private static class Node {
+        File file;
+        boolean defined = false;
+        final Set<String> labels = new LinkedHashSet<>();
+        Map<String, String> properties;
+
+        Node (File file, Map<String, String> properties) {
+            this.file = file;
+            this.properties = properties;
+        }
+    }
+
+    // Node files of the export and the number of nodes written to them
+    private final Map<File, Long> files = new LinkedHashMap<>();
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Adds a node file, which is written even if it ends up without nodes.
+     */
+    public synchronized void addFile (File file) {
+        if (!this.files.containsKey(file)) {
+            this.files.put(file, 0L);
+        }
+    }
+
+    /**
+     * Adds a node that has been visited, with all of its properties.
+     * Properties of a node defined before, e.g. by an imported ontology, are
+     * kept.
+     */
+    public synchronized void define (File file, String uri, Set<String> labels, Map<String, String> properties) {
+        Node node = this.nodes.get(uri);
+        if (node == null) {
+            node = new Node(file, properties);
+            this.nodes.put(uri, node);
+        } else if (!node.defined) {
+            node.file = file;
+            node.properties = properties;
+        }
+        node.defined = true;
+        node.labels.addAll(labels);
+    }
+
+    /**
+     * Adds a node that has only been referenced. Its properties only fill in
+     * those not known yet.
+     */
+    public synchronized void reference (File file, String uri, Set<String> labels, Map<String, String> properties) {
+        Node node = this.nodes.get(uri);
+        if (node == null) {
+            node = new Node(file, properties);
+            this.nodes.put(uri, node);
+        } else if (!node.defined) {
+            for (Map.Entry<String, String> property: properties.entrySet()) {
+                if (!node.properties.containsKey(property.getKey())) {
+                    node.properties.put(property.getKey(), property.getValue());
+                }
+            }
+        }
+        node.labels.addAll(labels);
+    }
+
+    /**
+     * Writes all node files and forgets the nodes.
+     */
+    public synchronized void write () throws IOException {
+        Map<File, BufferedWriter> writers = new LinkedHashMap<>();
+        try {
+            for (File file: this.files.keySet()) {
+                BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+                writers.put(file, writer);
+                // The explicit type is needed because property names like `rdfs:label` contain a colon themselves.
+                writer.write("uri:ID");
+                for (String property: CsvExporter.NODE_PROPERTIES) {
+                    writer.write(",");
+                    writer.write(property + ":string");
+                }
+                writer.write(",:LABEL");
+                writer.newLine();
+            }
+            for (Map.Entry<String, Node> entry: this.nodes.entrySet()) {
+                Node node = entry.getValue();
+                BufferedWriter writer = writers.get(node.file);
+                writer.write(CsvExporter.quote(entry.getKey()));
+                for (String property: CsvExporter.NODE_PROPERTIES) {
+                    writer.write(",");
+                    if (node.properties.containsKey(property)) {
+                        writer.write(CsvExporter.quote(node.properties.get(property)));
+                    }
+                }
+                writer.write(",");
+                writer.write(CsvExporter.quote(StringUtils.join(node.labels, ";")));
+                writer.newLine();
+                this.files.put(node.file, this.files.get(node.file) + 1);
+            }
+        } finally {
+            for (BufferedWriter writer: writers.values()) {
+                writer.close();
+            }
+        }
+        this.nodes.clear();
+    }
+
+    /**
+     * @return The number of nodes written to the file.
+     */
+    public synchronized long getNodeCount (File file) {
+        Long count = this.files.get(file);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,130 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates nodes and relationships into Cypher statements. Subclasses decide
+ * how the statements get to Neo4J.
+ */
+public abstract class CypherGraphSink implements GraphSink {
+
+    private static final List<String> NO_NODES = Collections.emptyList();
+
+    protected final String ontologyLabel;
+
+    private StatementWriter statementWriter;
+    private BulkWriter bulkWriter;
+
+    public CypherGraphSink (String ontologyLabel) {
+        this.ontologyLabel = ontologyLabel;
+    }
+
+    /**
+     * @param statementWriter Writer to which all statements are handed over.
+     * @param bulkWriter Optional writer used for nodes labeled with its node label.
+     */
+    protected void setWriters (StatementWriter statementWriter, BulkWriter bulkWriter) {
+        this.statementWriter = statementWriter;
+        this.bulkWriter = bulkWriter;
+    }
+
+    protected StatementWriter getStatementWriter () {
+        return this.statementWriter;
+    }
+
+    @Override
+    public void createNode (String nodeLabel, String uri, String name) {
+        // Uniqueness for Class nodes needs to be defined before
+        // Look: cypher/constraints.cql
+        // Example: cypher/createClass.cql
+        if (this.isBulk(nodeLabel)) {
+            this.bulkWriter.setProperty(uri, "name", name);
+            return;
+        }
+        String cql = "MERGE (n:`" + nodeLabel + "` {uri:{classUri}});";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("classUri", uri);
+        this.statementWriter.add(StatementWriter.Kind.NODE, cql, parameters, "Error creating a node", nodes(uri), NO_NODES);
+        this.setLabel(nodeLabel, "uri", uri, this.ontologyLabel);
+        this.setProperty(nodeLabel, uri, "name", name);
+    }
+
+    private void setLabel (String nodeLabel, String key, String value, String newLabel) {
+        String cql = "MATCH (n:`" + nodeLabel + "` {" + key + ":{value}}) SET n :`" + newLabel + "`;";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("value", value);
+        this.statementWriter.add(StatementWriter.Kind.LABEL, cql, parameters, "Error creating a label", NO_NODES, nodes(value));
+    }
+
+    @Override
+    public void setProperty (String nodeLabel, String uri, String propertyName, String propertyValue) {
+        // Example: cypher/setProperty.cql
+        if (this.isBulk(nodeLabel)) {
+            this.bulkWriter.setProperty(uri, propertyName, propertyValue);
+            return;
+        }
+        String cql = "MATCH (n:`" + nodeLabel + "` {uri:{classUri}}) SET n.`" + propertyName + "` = {propertyValue};";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("classUri", uri);
+        parameters.put("propertyValue", propertyValue);
+        this.statementWriter.add(StatementWriter.Kind.PROPERTY, cql, parameters, "Error creating a node property", NO_NODES, nodes(uri));
+    }
+
+    @Override
+    public void completeNode (String nodeLabel, String uri) {}
+
+    @Override
+    public void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        // Example: cypher/createRelationship.cql
+        if (this.isBulk(srcLabel) && this.isBulk(destLabel)) {
+            this.bulkWriter.addRelationship(srcUri, destUri, relationship);
+            return;
+        }
+        String cql = "MATCH (src:`" + srcLabel + "` {uri:{srcUri}}), (dest:`" + destLabel + "` {uri:{destUri}}) MERGE (src)-[:`" + relationship + "`]->(dest);";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("srcUri", srcUri);
+        parameters.put("destUri", destUri);
+        this.statementWriter.add(StatementWriter.Kind.RELATIONSHIP, cql, parameters, "Error creating a relationship", NO_NODES, nodes(srcUri, destUri));
+    }
+
+    @Override
+    public void removeProperty (String nodeLabel, String uri, String propertyName) {
+        // Example: cypher/removeProperty.cql
+        String cql = "MATCH (n:`" + nodeLabel + "` {uri:{classUri}}) REMOVE n.`" + propertyName + "`;";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("classUri", uri);
+        this.statementWriter.add(StatementWriter.Kind.PROPERTY, cql, parameters, "Error removing a node property", NO_NODES, nodes(uri));
+    }
+
+    @Override
+    public void deleteRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        // Example: cypher/deleteRelationship.cql
+        String cql = "MATCH (src:`" + srcLabel + "` {uri:{srcUri}})-[r:`" + relationship + "`]->(dest:`" + destLabel + "` {uri:{destUri}}) DELETE r;";
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("srcUri", srcUri);
+        parameters.put("destUri", destUri);
+        this.statementWriter.add(StatementWriter.Kind.RELATIONSHIP, cql, parameters, "Error deleting a relationship", NO_NODES, nodes(srcUri, destUri));
+    }
+
+    /**
+     * Hands everything buffered over to Neo4J.
+     */
+    protected void flush () {
+        if (this.bulkWriter != null) {
+            this.bulkWriter.flush();
+        }
+        this.statementWriter.flush();
+    }
+
+    private static List<String> nodes (String... uris) {
+        return Arrays.asList(uris);
+    }
+
+    private boolean isBulk (String nodeLabel) {
+        return this.bulkWriter != null && this.bulkWriter.getNodeLabel().equals(nodeLabel);
+    }
+}
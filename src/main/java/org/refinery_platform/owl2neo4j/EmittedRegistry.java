@@ -0,0 +1,125 @@
+package org.refinery_platform.owl2neo4j;
+
+/**
+ * Remembers which nodes and relationships have been written during an import
+ * so that each of them is sent only once. Classes are referenced over and
+ * over again as superclasses, restriction fillers and equivalent classes, and
+ * every reference used to `MERGE` the node and set its label and name again.
+ *
+ * Only a 64 bit hash of every node and relationship is kept, in an open
+ * addressing table of primitive longs, i.e. about 16 bytes per entry instead
+ * of the strings themselves. With millions of entries the chance of a
+ * collision, which would drop a write, is still well below one in a million.
+ */
+public class EmittedRegistry {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Separates the parts of a key so that e.g. "ab" + "c" and "a" + "bc" differ
+    private static final char SEPARATOR = '\u0000';
+
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private long skippedNodes = 0;
+    private long skippedRelationships = 0;
+
+    /**
+     * @return `true` if the node hasn't been written before.
+     */
+    public boolean addNode (String label, String uri) {
+        boolean added = this.add(hash('N', label, uri, null));
+        if (!added) {
+            this.skippedNodes++;
+        }
+        return added;
+    }
+
+    /**
+     * @return `true` if the relationship hasn't been written before.
+     */
+    public boolean addRelationship (String srcUri, String relationship, String destUri) {
+        boolean added = this.add(hash('R', srcUri, relationship, destUri));
+        if (!added) {
+            this.skippedRelationships++;
+        }
+        return added;
+    }
+
+    public int size () {
+        return this.size;
+    }
+
+    public long getSkippedNodes () {
+        return this.skippedNodes;
+    }
+
+    public long getSkippedRelationships () {
+        return this.skippedRelationships;
+    }
+
+    private boolean add (long hash) {
+        // 0 marks empty slots
+        if (hash == 0) {
+            hash = 1;
+        }
+        int mask = this.table.length - 1;
+        int i = (int) hash & mask;
+        while (this.table[i] != 0) {
+            if (this.table[i] == hash) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        this.table[i] = hash;
+        this.size++;
+        // Linear probing degrades quickly when the table gets full
+        if (this.size * 2 > this.table.length) {
+            this.grow();
+        }
+        return true;
+    }
+
+    private void grow () {
+        long[] old = this.table;
+        this.table = new long[old.length * 2];
+        int mask = this.table.length - 1;
+        for (long hash: old) {
+            if (hash != 0) {
+                int i = (int) hash & mask;
+                while (this.table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                this.table[i] = hash;
+            }
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a over all parts followed by the MurmurHash3 finalizer,
+     * which spreads the bits used for the table index.
+     */
+    private static long hash (char kind, String a, String b, String c) {
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ kind) * 0x100000001b3L;
+        h = hash(h, a);
+        h = hash(h, b);
+        h = hash(h, c);
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long hash (long h, String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h = (h ^ s.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return (h ^ SEPARATOR) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,137 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Producer/consumer pipeline: a pool of workers extracts records from a list
+ * of items in parallel and feeds them into a queue which is drained by the
+ * calling thread. Records are consumed in the order of their items, no matter
+ * which worker finished first.
+ *
+ * At most a fixed number of items are extracted but not yet consumed, i.e.
+ * workers block when the consumer can't keep up, so memory stays bounded.
+ */
+public class ExtractionPipeline<T, R> {
+
+    public interface Extractor<T, R> {
+        /**
+         * @return The record or `null` if the item should be skipped.
+         */
+        R extract (T item) throws Exception;
+    }
+
+    public interface Consumer<R> {
+        void accept (R record) throws Exception;
+    }
+
+    public static int DEFAULT_QUEUE_SIZE = 1000;
+
+    private final int workers;
+    private final int queueSize;
+
+    public ExtractionPipeline (int workers, int queueSize) {
+        this.workers = Math.max(1, workers);
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    public void run (final List<T> items, final Extractor<T, R> extractor, Consumer<R> consumer) throws Exception {
+        final BlockingQueue<Extracted<R>> queue = new LinkedBlockingQueue<>();
+        // Marks that a worker is done
+        final Extracted<R> end = new Extracted<>(-1, null);
+        // Items which have been handed to a worker but not been consumed yet
+        final Semaphore unconsumed = new Semaphore(this.queueSize);
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+        for (int w = 0; w < this.workers; w++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    int i = -1;
+                    try {
+                        while (true) {
+                            // Items are claimed in order after acquiring a permit, so the next item to be consumed
+                            // always has a permit and the consumer can't starve.
+                            unconsumed.acquire();
+                            i = next.getAndIncrement();
+                            if (i >= items.size()) {
+                                // Nothing left to consume, so hand the permit on to a worker still waiting for one
+                                unconsumed.release();
+                                break;
+                            }
+                            queue.put(new Extracted<>(i, extractor.extract(items.get(i))));
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        // Let the other workers run out of items
+                        next.set(items.size());
+                    }
+                    try {
+                        if (i >= 0 && i < items.size() && failure.get() != null) {
+                            // The consumer waits for the failed item before it lets the others continue
+                            queue.put(new Extracted<R>(i, null));
+                        }
+                        queue.put(end);
+                    } catch (InterruptedException e) {
+                        // The consumer gave up already
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+
+        try {
+            // Records which overtook an earlier one
+            Map<Integer, Extracted<R>> overtaking = new HashMap<>();
+            int nextToConsume = 0;
+            int finished = 0;
+            while (finished < this.workers) {
+                Extracted<R> extracted = queue.take();
+                if (extracted == end) {
+                    finished++;
+                    continue;
+                }
+                overtaking.put(extracted.index, extracted);
+                while ((extracted = overtaking.remove(nextToConsume)) != null) {
+                    if (extracted.record != null && failure.get() == null) {
+                        consumer.accept(extracted.record);
+                    }
+                    nextToConsume++;
+                    unconsumed.release();
+                }
+            }
+        } catch (Exception e) {
+            executor.shutdownNow();
+            throw e;
+        }
+
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static class Extracted<R> {
+        final int index;
+        final R record;
+
+        Extracted (int index, R record) {
+            this.index = index;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.refinery_platform.owl2neo4j;
+
+/**
+ * Destination of the nodes and relationships extracted from an ontology.
+ *
+ * Nodes are identified by their label and URI and are always created before
+ * the first relationship referring to them.
+ */
+public interface GraphSink {
+
+    void open () throws Exception;
+
+    void createNode (String nodeLabel, String uri, String name) throws Exception;
+
+    void setProperty (String nodeLabel, String uri, String propertyName, String propertyValue) throws Exception;
+
+    /**
+     * Called when all properties of a node have been set.
+     */
+    void completeNode (String nodeLabel, String uri) throws Exception;
+
+    void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) throws Exception;
+
+    void removeProperty (String nodeLabel, String uri, String propertyName) throws Exception;
+
+    void deleteRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) throws Exception;
+
+    /**
+     * Writes and commits everything that has been buffered so far. The sink
+     * stays open.
+     */
+    void commit () throws Exception;
+
+    /**
+     * Writes and commits everything that is still buffered.
+     */
+    void close () throws Exception;
+}
@@ -0,0 +1,56 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JSON **/
+import org.json.JSONObject;
+
+/**
+ * Settings of the HTTP connections to Neo4J.
+ */
+public class HttpOptions {
+
+    public static int DEFAULT_MAX_CONNECTIONS = 200;
+    public static int DEFAULT_CONNECTIONS_PER_ROUTE = 20;
+    public static int DEFAULT_CONNECT_TIMEOUT = 10000;
+    public static int DEFAULT_SOCKET_TIMEOUT = 60000;
+    public static int DEFAULT_KEEP_ALIVE = 30;
+
+    // Max. number of pooled connections in total and to the Neo4J server. Requests wait for a free connection.
+    public int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    public int connectionsPerRoute = DEFAULT_CONNECTIONS_PER_ROUTE;
+
+    // Milliseconds until connecting and until waiting for data time out. `0` waits forever.
+    public int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    public int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+
+    // Seconds an idle connection is kept for the next request unless the server asks for less. `0` opens a new
+    // connection for every request.
+    public int keepAlive = DEFAULT_KEEP_ALIVE;
+
+    // Send small requests immediately instead of waiting for more data (Nagle's algorithm)
+    public boolean tcpNoDelay = true;
+
+    /**
+     * Overrides settings with the ones given in the `server` block of a batch
+     * file. Keys are the names of the command line options.
+     */
+    public void update (JSONObject server) {
+        if (server.has("max-connections")) {
+            this.maxConnections = server.getInt("max-connections");
+        }
+        if (server.has("connections-per-route")) {
+            this.connectionsPerRoute = server.getInt("connections-per-route");
+        }
+        if (server.has("connect-timeout")) {
+            this.connectTimeout = server.getInt("connect-timeout");
+        }
+        if (server.has("socket-timeout")) {
+            this.socketTimeout = server.getInt("socket-timeout");
+        }
+        if (server.has("keep-alive")) {
+            this.keepAlive = server.getInt("keep-alive");
+        }
+        if (server.has("tcp-nodelay")) {
+            this.tcpNoDelay = server.getBoolean("tcp-nodelay");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Jersey RESTful client */
+import com.mashape.unirest.http.Unirest;
+
+/** Apache HTTP client */
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pooled HTTP connections to Neo4J. The client is shared by all requests,
+ * including the ones sent through Unirest, and keeps track of how many
+ * connections had to be opened for how many requests.
+ */
+public class HttpTransport {
+
+    private final CloseableHttpClient client;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    /**
+     * @param headers Headers sent with every request, e.g. the credentials.
+     */
+    public HttpTransport (HttpOptions options, Map<String, String> headers) {
+        // Every connection of the pool is created here
+        HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory =
+            new HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection>() {
+                @Override
+                public ManagedHttpClientConnection create (HttpRoute route, ConnectionConfig config) {
+                    connections.incrementAndGet();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+                }
+            };
+        Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            // Respects e.g. `-Dhttps.protocols`
+            .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+            .build();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+            socketFactories,
+            connectionFactory
+        );
+        connectionManager.setMaxTotal(Math.max(1, options.maxConnections));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, options.connectionsPerRoute));
+        connectionManager.setDefaultSocketConfig(
+            SocketConfig.custom()
+                .setTcpNoDelay(options.tcpNoDelay)
+                .setSoKeepAlive(true)
+                .setSoTimeout(options.socketTimeout)
+                .build()
+        );
+
+        List<Header> defaultHeaders = new ArrayList<>();
+        for (Map.Entry<String, String> header: headers.entrySet()) {
+            defaultHeaders.add(new BasicHeader(header.getKey(), header.getValue()));
+        }
+
+        HttpClientBuilder builder = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(
+                RequestConfig.custom()
+                    .setConnectTimeout(options.connectTimeout)
+                    .setSocketTimeout(options.socketTimeout)
+                    .build()
+            )
+            .setDefaultHeaders(defaultHeaders)
+            .addInterceptorLast(new HttpRequestInterceptor() {
+                @Override
+                public void process (HttpRequest request, HttpContext context) {
+                    requests.incrementAndGet();
+                }
+            });
+
+        if (options.keepAlive > 0) {
+            final long keepAlive = options.keepAlive * 1000L;
+            builder.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration (HttpResponse response, HttpContext context) {
+                    // The server might close idle connections earlier
+                    long duration = super.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+                }
+            });
+        } else {
+            builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+
+        this.client = builder.build();
+    }
+
+    /**
+     * Lets Unirest send its requests through this transport as well.
+     */
+    public void install () {
+        Unirest.setHttpClient(this.client);
+    }
+
+    public CloseableHttpResponse execute (HttpUriRequest request) throws IOException {
+        return this.client.execute(request);
+    }
+
+    public long getRequests () {
+        return this.requests.get();
+    }
+
+    public long getConnections () {
+        return this.connections.get();
+    }
+
+    public void printStats () {
+        long requests = this.getRequests();
+        long connections = this.getConnections();
+        long reused = Math.max(0, requests - connections);
+        System.out.println(
+            "HTTP requests:       " + requests + " over " + connections + " connections (" +
+                (requests > 0 ? reused * 100 / requests : 0) + "% sent over a reused connection)"
+        );
+    }
+}
@@ -0,0 +1,46 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, i.e. without boxing every element.
+ */
+public class IntList {
+
+    private int[] elements;
+    private int size = 0;
+
+    public IntList () {
+        this(16);
+    }
+
+    public IntList (int capacity) {
+        this.elements = new int[Math.max(1, capacity)];
+    }
+
+    public void add (int element) {
+        if (this.size == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.size * 2);
+        }
+        this.elements[this.size++] = element;
+    }
+
+    public int get (int index) {
+        if (index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + this.size);
+        }
+        return this.elements[index];
+    }
+
+    public int size () {
+        return this.size;
+    }
+
+    public boolean isEmpty () {
+        return this.size == 0;
+    }
+
+    public int[] toArray () {
+        return Arrays.copyOf(this.elements, this.size);
+    }
+}
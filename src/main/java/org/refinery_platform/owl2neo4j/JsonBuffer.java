@@ -0,0 +1,193 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Byte buffer which JSON is encoded into directly as UTF-8, i.e. without
+ * building an object tree or intermediate strings first. Buffers are meant to
+ * be reused through a `Pool`.
+ */
+public class JsonBuffer extends ByteArrayOutputStream {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    public JsonBuffer (int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * @return The underlying array. Only the first `size()` bytes are valid.
+     */
+    public byte[] array () {
+        return this.buf;
+    }
+
+    /**
+     * Appends raw ASCII, e.g. punctuation or a constant key.
+     */
+    public JsonBuffer appendRaw (String ascii) {
+        this.ensureCapacity(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            this.buf[this.count++] = (byte) ascii.charAt(i);
+        }
+        return this;
+    }
+
+    public JsonBuffer appendRaw (char ascii) {
+        this.ensureCapacity(1);
+        this.buf[this.count++] = (byte) ascii;
+        return this;
+    }
+
+    /**
+     * Appends a quoted and escaped JSON string.
+     */
+    public JsonBuffer appendString (String s) {
+        // Worst case: every char is escaped as \\uXXXX
+        this.ensureCapacity(s.length() * 6 + 2);
+        byte[] buf = this.buf;
+        int count = this.count;
+        buf[count++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buf[count++] = '\\';
+                }
+                buf[count++] = (byte) c;
+            } else if (c < 0x20) {
+                buf[count++] = '\\';
+                switch (c) {
+                    case '\n': buf[count++] = 'n'; break;
+                    case '\r': buf[count++] = 'r'; break;
+                    case '\t': buf[count++] = 't'; break;
+                    case '\b': buf[count++] = 'b'; break;
+                    case '\f': buf[count++] = 'f'; break;
+                    default:
+                        buf[count++] = 'u';
+                        buf[count++] = '0';
+                        buf[count++] = '0';
+                        buf[count++] = HEX[c >> 4];
+                        buf[count++] = HEX[c & 0xf];
+                }
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xc0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates aren't valid UTF-8, same as String.getBytes()
+                buf[count++] = '?';
+            } else {
+                buf[count++] = (byte) (0xe0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buf[count++] = '"';
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * Appends a statement parameter. Values are strings, numbers, collections
+     * or maps. Everything else is written as its string representation.
+     */
+    public JsonBuffer appendValue (Object value) {
+        if (value instanceof Map) {
+            this.appendRaw('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry: ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    this.appendRaw(',');
+                }
+                first = false;
+                this.appendString(String.valueOf(entry.getKey()));
+                this.appendRaw(':');
+                this.appendValue(entry.getValue());
+            }
+            this.appendRaw('}');
+        } else if (value instanceof Collection) {
+            this.appendRaw('[');
+            boolean first = true;
+            for (Object element: (Collection<?>) value) {
+                if (!first) {
+                    this.appendRaw(',');
+                }
+                first = false;
+                this.appendValue(element);
+            }
+            this.appendRaw(']');
+        } else if (value instanceof Number) {
+            this.appendRaw(Long.toString(((Number) value).longValue()));
+        } else {
+            this.appendString(value.toString());
+        }
+        return this;
+    }
+
+    public JsonBuffer append (JsonBuffer other) {
+        this.write(other.buf, 0, other.count);
+        return this;
+    }
+
+    /**
+     * Decodes a part of the buffer, e.g. for error messages.
+     */
+    public String toString (int start, int end) {
+        return new String(this.buf, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString () {
+        return this.toString(0, this.count);
+    }
+
+    private void ensureCapacity (int additional) {
+        if (this.count + additional > this.buf.length) {
+            byte[] grown = new byte[Math.max(this.buf.length * 2, this.count + additional)];
+            System.arraycopy(this.buf, 0, grown, 0, this.count);
+            this.buf = grown;
+        }
+    }
+
+    /**
+     * Keeps a limited number of buffers around for reuse. Buffers may be
+     * acquired and released by different threads.
+     */
+    public static class Pool {
+        private final BlockingQueue<JsonBuffer> buffers;
+        private final int capacity;
+
+        /**
+         * @param size Max. number of idle buffers kept.
+         * @param capacity Initial capacity of new buffers. Buffers which grew
+         *   beyond four times this size are dropped instead of being kept.
+         */
+        public Pool (int size, int capacity) {
+            this.buffers = new ArrayBlockingQueue<>(Math.max(1, size));
+            this.capacity = capacity;
+        }
+
+        public JsonBuffer acquire () {
+            JsonBuffer buffer = this.buffers.poll();
+            return buffer != null ? buffer : new JsonBuffer(this.capacity);
+        }
+
+        public void release (JsonBuffer buffer) {
+            if (buffer.buf.length <= this.capacity * 4) {
+                buffer.reset();
+                this.buffers.offer(buffer);
+            }
+        }
+    }
+}
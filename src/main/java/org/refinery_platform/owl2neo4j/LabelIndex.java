@@ -0,0 +1,146 @@
+package org.refinery_platform.owl2neo4j;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/** Apache commons */
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The label of every IRI of an ontology and its imports, collected in one
+ * pass over the label assertions instead of being looked up class by class.
+ *
+ * Labels of ontologies indexed earlier take precedence, i.e. imported
+ * ontologies only provide labels for IRIs the ontology itself doesn't label.
+ * Of the labels of the same ontology the one in the most preferred language
+ * is picked. Labels in none of the preferred languages, e.g. all of them
+ * without `--label-lang`, rank below those in any preferred language, untagged
+ * ones first, then `en` and then all other languages. Ties are broken by the
+ * text and then the language tag, so the choice doesn't depend on the order
+ * in which labels are found, which differs between the OWL API and
+ * `StreamingExtractor`. Once built the index is only read and can be shared
+ * by the extraction workers.
+ *
+ * Labels are kept as they are. All sinks pass them on as parameters or CSV
+ * fields, so they don't need to be escaped for Cypher.
+ */
+public class LabelIndex {
+
+    private static class Candidate {
+        final String text;
+        final String lang;
+        final int rank;
+        final int source;
+
+        Candidate (String text, String lang, int rank, int source) {
+            this.text = text;
+            this.lang = lang;
+            this.rank = rank;
+            this.source = source;
+        }
+    }
+
+    private final List<String> languages = new ArrayList<>();
+    private final Map<String, Candidate> labels = new HashMap<>();
+    private int source = 0;
+
+    /**
+     * @param languages Language tags, most preferred first. A tag also
+     *   matches its subtags, e.g. `en` matches `en-GB`.
+     */
+    public LabelIndex (List<String> languages) {
+        for (String language: languages) {
+            this.languages.add(language.toLowerCase());
+        }
+    }
+
+    /**
+     * Adds the labels of an ontology, but not of its imports.
+     */
+    public void index (OWLOntology ontology) {
+        OWLAnnotationProperty rdfsLabel = OWLManager.getOWLDataFactory().getRDFSLabel();
+        for (OWLAnnotationAssertionAxiom axiom: ontology.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+            if (axiom.getProperty().equals(rdfsLabel) &&
+                axiom.getSubject() instanceof IRI &&
+                axiom.getValue() instanceof OWLLiteral) {
+                OWLLiteral literal = (OWLLiteral) axiom.getValue();
+                this.add(axiom.getSubject().toString(), literal.getLiteral(), literal.getLang());
+            }
+        }
+        this.source++;
+    }
+
+    /**
+     * Adds a single label of the ontology currently being indexed.
+     */
+    public void add (String iri, String text, String lang) {
+        if (StringUtils.isBlank(text)) {
+            return;
+        }
+        int rank = this.rank(lang);
+        Candidate current = this.labels.get(iri);
+        Candidate candidate = new Candidate(text, lang == null ? "" : lang, rank, this.source);
+        if (current == null || (current.source == this.source && precedes(candidate, current))) {
+            this.labels.put(iri, candidate);
+        }
+    }
+
+    private static boolean precedes (Candidate candidate, Candidate current) {
+        if (candidate.rank != current.rank) {
+            return candidate.rank < current.rank;
+        }
+        int order = candidate.text.compareTo(current.text);
+        if (order == 0) {
+            order = candidate.lang.compareTo(current.lang);
+        }
+        return order < 0;
+    }
+
+    /**
+     * @return The label or a label without text for IRIs without one.
+     */
+    public Owl2Neo4J.Label get (String iri) {
+        Candidate candidate = this.labels.get(iri);
+        if (candidate == null) {
+            return new Owl2Neo4J.Label(null, null);
+        }
+        return new Owl2Neo4J.Label(candidate.text, candidate.lang);
+    }
+
+    public int size () {
+        return this.labels.size();
+    }
+
+    /**
+     * @return The position of the language in the preferences or, for other
+     *   languages, the number of preferences plus 0 for untagged labels, 1 for
+     *   `en` and 2 for the rest.
+     */
+    private int rank (String lang) {
+        if (lang == null || lang.isEmpty()) {
+            return this.languages.size();
+        }
+        String tag = lang.toLowerCase();
+        for (int i = 0; i < this.languages.size(); i++) {
+            if (matches(tag, this.languages.get(i))) {
+                return i;
+            }
+        }
+        return this.languages.size() + (matches(tag, "en") ? 1 : 2);
+    }
+
+    private static boolean matches (String tag, String language) {
+        return tag.equals(language) || tag.startsWith(language + "-");
+    }
+}
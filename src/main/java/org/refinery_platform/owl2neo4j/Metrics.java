@@ -0,0 +1,381 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JSON **/
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics of the import of one ontology: the time spent per phase, the
+ * statements, requests and bytes sent, and the latency of the requests.
+ * Requests might be sent concurrently, so recording is thread-safe.
+ *
+ * Metrics are exported as a JSON summary and in Prometheus' text format, e.g.
+ * for the textfile collector of the node exporter. A batch exports the
+ * metrics of all its ontologies in one file as well.
+ */
+public class Metrics {
+
+    public enum Phase {
+        // Loading and parsing the OWL files, or reading the cached taxonomy
+        PARSE,
+        // Part of the extraction
+        CLASSIFICATION,
+        EXTRACTION,
+        WRITE,
+        TOTAL;
+
+        String key () {
+            return this.name().toLowerCase();
+        }
+    }
+
+    // Request sent for statements of different kinds
+    public static final String MIXED = "mixed";
+    // Requests beginning and committing a transaction
+    public static final String BEGIN = "begin";
+    public static final String COMMIT = "commit";
+
+    private static final String PREFIX = "owl2neo4j_";
+
+    // Upper bounds of the latency buckets in seconds
+    private static final double[] BUCKETS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+
+    private final String ontology;
+
+    private final AtomicLongArray phases = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray statements = new AtomicLongArray(StatementWriter.Kind.values().length);
+    private final AtomicLong classes = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesUncompressed = new AtomicLong();
+    // Kind of request -> latency. Sorted to keep the exports stable.
+    private final ConcurrentMap<String, Histogram> latencies = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param ontology Acronym of the ontology, used as label.
+     */
+    public Metrics (String ontology) {
+        this.ontology = ontology;
+    }
+
+    public String getOntology () {
+        return this.ontology;
+    }
+
+    public void setPhase (Phase phase, long nanos) {
+        this.phases.set(phase.ordinal(), nanos);
+    }
+
+    public long getPhase (Phase phase) {
+        return this.phases.get(phase.ordinal());
+    }
+
+    public void setClasses (long classes) {
+        this.classes.set(classes);
+    }
+
+    public void statement (StatementWriter.Kind kind) {
+        this.statements.incrementAndGet(kind.ordinal());
+    }
+
+    public void retry () {
+        this.retries.incrementAndGet();
+    }
+
+    /**
+     * @param kind Kind of the statements of the request, `MIXED`, `BEGIN` or `COMMIT`.
+     * @param bytes Size of the request as sent.
+     * @param uncompressedBytes Size of the request before compressing it.
+     */
+    public void request (String kind, long nanos, long bytes, long uncompressedBytes) {
+        Histogram histogram = this.latencies.get(kind);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = this.latencies.putIfAbsent(kind, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.observe(nanos);
+        this.bytesSent.addAndGet(bytes);
+        this.bytesUncompressed.addAndGet(uncompressedBytes);
+    }
+
+    public long getRequests () {
+        long requests = 0;
+        for (Histogram histogram: this.latencies.values()) {
+            requests += histogram.count();
+        }
+        return requests;
+    }
+
+    /**
+     * Classes written per second of writing.
+     */
+    public double getClassesPerSecond () {
+        long write = this.getPhase(Phase.WRITE);
+        return write > 0 ? this.classes.get() / seconds(write) : 0;
+    }
+
+    public JSONObject toJson () {
+        JSONObject json = new JSONObject();
+        json.put("ontology", this.ontology);
+
+        JSONObject phaseSeconds = new JSONObject();
+        for (Phase phase: Phase.values()) {
+            phaseSeconds.put(phase.key(), seconds(this.getPhase(phase)));
+        }
+        json.put("phaseSeconds", phaseSeconds);
+
+        json.put("classes", this.classes.get());
+        json.put("classesPerSecond", this.getClassesPerSecond());
+
+        JSONObject statementCounts = new JSONObject();
+        for (StatementWriter.Kind kind: StatementWriter.Kind.values()) {
+            statementCounts.put(kind.key(), this.statements.get(kind.ordinal()));
+        }
+        json.put("statements", statementCounts);
+
+        json.put("requests", this.getRequests());
+        json.put("retries", this.retries.get());
+        json.put("bytesSent", this.bytesSent.get());
+        json.put("bytesUncompressed", this.bytesUncompressed.get());
+
+        JSONObject latency = new JSONObject();
+        for (Map.Entry<String, Histogram> entry: this.latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            JSONObject summary = new JSONObject();
+            long count = histogram.count();
+            summary.put("count", count);
+            summary.put("meanSeconds", count > 0 ? seconds(histogram.sum.get()) / count : 0);
+            summary.put("p50Seconds", histogram.quantile(0.5));
+            summary.put("p95Seconds", histogram.quantile(0.95));
+            summary.put("p99Seconds", histogram.quantile(0.99));
+            summary.put("maxSeconds", seconds(histogram.max.get()));
+            latency.put(entry.getKey(), summary);
+        }
+        json.put("requestLatency", latency);
+        return json;
+    }
+
+    /**
+     * Writes `<ontology>.json` and `<ontology>.prom` to the directory.
+     */
+    public void write (File directory) {
+        write(directory, this.ontology, this.toJson(), Collections.singletonList(this), -1);
+    }
+
+    /**
+     * Writes `batch.json` and `batch.prom` with the metrics of all ontologies
+     * of a batch to the directory.
+     */
+    public static void writeBatch (File directory, List<Metrics> metrics, long elapsedNanos) {
+        JSONObject json = new JSONObject();
+        json.put("elapsedSeconds", seconds(elapsedNanos));
+        JSONArray ontologies = new JSONArray();
+        for (Metrics ontologyMetrics: metrics) {
+            ontologies.put(ontologyMetrics.toJson());
+        }
+        json.put("ontologies", ontologies);
+        write(directory, "batch", json, metrics, elapsedNanos);
+    }
+
+    private static void write (File directory, String name, JSONObject json, List<Metrics> metrics, long elapsedNanos) {
+        directory.mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, name + ".json")), StandardCharsets.UTF_8)) {
+            writer.write(json.toString(2));
+        } catch (Exception e) {
+            Owl2Neo4J.print_error("Error writing the metrics of " + name);
+            Owl2Neo4J.print_error(e.getMessage());
+        }
+        // Written to a temporary file first as collectors might read it any time
+        File prometheus = new File(directory, name + ".prom");
+        File temporary = new File(directory, name + ".prom.tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8)) {
+            writer.write(toPrometheus(metrics, elapsedNanos));
+        } catch (Exception e) {
+            Owl2Neo4J.print_error("Error writing the metrics of " + name);
+            Owl2Neo4J.print_error(e.getMessage());
+            return;
+        }
+        if (!temporary.renameTo(prometheus)) {
+            Owl2Neo4J.print_error("Error writing the metrics of " + name + " to " + prometheus);
+        }
+    }
+
+    /**
+     * @param elapsedNanos Elapsed time of the batch or -1 for a single ontology.
+     */
+    static String toPrometheus (List<Metrics> metrics, long elapsedNanos) {
+        StringBuilder out = new StringBuilder();
+
+        family(out, "phase_seconds", "gauge", "Time spent per phase of the import. Classification is part of the extraction.");
+        for (Metrics m: metrics) {
+            for (Phase phase: Phase.values()) {
+                sample(out, "phase_seconds", m.labels("phase", phase.key()), seconds(m.getPhase(phase)));
+            }
+        }
+
+        family(out, "classes_total", "counter", "Classes written");
+        for (Metrics m: metrics) {
+            sample(out, "classes_total", m.labels(), m.classes.get());
+        }
+
+        family(out, "classes_per_second", "gauge", "Classes written per second of writing");
+        for (Metrics m: metrics) {
+            sample(out, "classes_per_second", m.labels(), m.getClassesPerSecond());
+        }
+
+        family(out, "statements_total", "counter", "Cypher statements sent by kind");
+        for (Metrics m: metrics) {
+            for (StatementWriter.Kind kind: StatementWriter.Kind.values()) {
+                sample(out, "statements_total", m.labels("kind", kind.key()), m.statements.get(kind.ordinal()));
+            }
+        }
+
+        family(out, "request_retries_total", "counter", "Requests sent again after a failure");
+        for (Metrics m: metrics) {
+            sample(out, "request_retries_total", m.labels(), m.retries.get());
+        }
+
+        family(out, "request_bytes_total", "counter", "Bytes of the requests as sent, i.e. compressed if enabled");
+        for (Metrics m: metrics) {
+            sample(out, "request_bytes_total", m.labels(), m.bytesSent.get());
+        }
+
+        family(out, "request_uncompressed_bytes_total", "counter", "Bytes of the requests before compression");
+        for (Metrics m: metrics) {
+            sample(out, "request_uncompressed_bytes_total", m.labels(), m.bytesUncompressed.get());
+        }
+
+        family(out, "request_duration_seconds", "histogram", "Request latency by the kind of statements sent");
+        for (Metrics m: metrics) {
+            for (Map.Entry<String, Histogram> entry: m.latencies.entrySet()) {
+                Histogram histogram = entry.getValue();
+                long cumulative = 0;
+                for (int i = 0; i < BUCKETS.length; i++) {
+                    cumulative += histogram.counts.get(i);
+                    sample(
+                        out,
+                        "request_duration_seconds_bucket",
+                        m.labels("kind", entry.getKey(), "le", Double.toString(BUCKETS[i])),
+                        cumulative
+                    );
+                }
+                cumulative += histogram.counts.get(BUCKETS.length);
+                sample(out, "request_duration_seconds_bucket", m.labels("kind", entry.getKey(), "le", "+Inf"), cumulative);
+                sample(out, "request_duration_seconds_sum", m.labels("kind", entry.getKey()), seconds(histogram.sum.get()));
+                sample(out, "request_duration_seconds_count", m.labels("kind", entry.getKey()), cumulative);
+            }
+        }
+
+        if (elapsedNanos >= 0) {
+            family(out, "batch_seconds", "gauge", "Elapsed time of the batch");
+            sample(out, "batch_seconds", "", seconds(elapsedNanos));
+            family(out, "batch_ontologies", "gauge", "Ontologies imported by the batch");
+            sample(out, "batch_ontologies", "", metrics.size());
+        }
+
+        return out.toString();
+    }
+
+    private static void family (StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample (StringBuilder out, String name, String labels, double value) {
+        out.append(PREFIX).append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * @param pairs Names and values of further labels.
+     */
+    private String labels (String... pairs) {
+        StringBuilder labels = new StringBuilder("{ontology=\"").append(escape(this.ontology)).append('"');
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            labels.append(',').append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static String escape (String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double seconds (long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Latency histogram with fixed buckets. Quantiles are approximated by the
+     * upper bound of the bucket they fall into.
+     */
+    static class Histogram {
+
+        // Per bucket, not cumulative. The last one counts everything above the largest bound.
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void observe (long nanos) {
+            double seconds = seconds(nanos);
+            int bucket = 0;
+            while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+                bucket++;
+            }
+            this.counts.incrementAndGet(bucket);
+            this.sum.addAndGet(nanos);
+            long max = this.max.get();
+            while (nanos > max && !this.max.compareAndSet(max, nanos)) {
+                max = this.max.get();
+            }
+        }
+
+        long count () {
+            long count = 0;
+            for (int i = 0; i < this.counts.length(); i++) {
+                count += this.counts.get(i);
+            }
+            return count;
+        }
+
+        double quantile (double q) {
+            long count = this.count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * count);
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += this.counts.get(i);
+                if (cumulative >= rank) {
+                    return Math.min(BUCKETS[i], seconds(this.max.get()));
+                }
+            }
+            return seconds(this.max.get());
+        }
+    }
+}
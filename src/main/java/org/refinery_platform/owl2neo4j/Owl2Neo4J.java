@@ -8,9 +8,6 @@ import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.util.AutoIRIMapper;
 import org.semanticweb.owlapi.util.OWLClassExpressionVisitorAdapter;
 
-/** Reasoner */
-import org.semanticweb.HermiT.Reasoner;
-
 /** Apache commons */
 import org.apache.commons.cli.*;
 import org.apache.commons.codec.binary.Base64;
@@ -18,28 +15,29 @@ import org.apache.commons.lang3.StringUtils;
 
 /** Jersey RESTful client */
 import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.Headers;
-import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.HttpResponse;
 
 /** JSON **/
 import org.json.JSONObject;
 import org.json.JSONArray;
-import javax.json.Json;
-import javax.json.JsonObject;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.lang.Runnable;
 import java.io.FileReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -49,16 +47,13 @@ import java.nio.file.Paths;
 
 public class Owl2Neo4J {
 
-    private static String REST_ENDPOINT = "/db/data";
-    private static String TRANSACTION_ENDPOINT = "/db/data/transaction";
-
     public static String ROOT_ONTOLOGY = "OWL";
     public static String ROOT_CLASS = "Thing";
     public static String ROOT_CLASS_ONT_ID = ROOT_ONTOLOGY + ":" + ROOT_CLASS;
     public static String ROOT_CLASS_URI = "http://www.w3.org/2002/07/owl#" + ROOT_CLASS;
 
     // Graph related nodes
-    private static String CLASS_NODE_LABEL = "Class";
+    static String CLASS_NODE_LABEL = "Class";
     private static String INDIVIDUAL_NODE_LABEL = "Individual";
     // Meta data related nodes
     private static String ONTOLOGY_NODE_LABEL = "Ontology";
@@ -71,14 +66,56 @@ public class Owl2Neo4J {
     private String ontology_acronym;
     private String server_root_url;
     private String neo4j_authentication_header;
-    private String transaction;
+    private String neo4j_user;
+    private String neo4j_password;
     private Set<String> eqps = new HashSet<>();  // Existential quantification property strings
-    private Set<OWLObjectPropertyExpression> eqp = new HashSet<>();  // Existential quantification properties
+    private List<String> label_languages = new ArrayList<>();  // Preferred label languages, most preferred first
+    private Map<OWLObjectPropertyExpression, String> eqp = new HashMap<>();  // Existential quantification properties -> relationship type
     private Boolean include_import_closure = false;
     private Boolean no_local_owl_files = false;
+    private WriteOptions write_options = new WriteOptions();
+    private HttpOptions http_options = new HttpOptions();
+    private HttpTransport http_transport;  // Connections to Neo4J's HTTP endpoint, shared by all imports of a batch
+    private String path_to_csv_export;
+    private CsvNodeTable exported_nodes = new CsvNodeTable();  // Nodes of the CSV files of all imports of a batch
+    private boolean plan = false;  // Count what would be written instead of writing anything
+    private GraphSink sink;
+    private EmittedRegistry emitted;  // Nodes and relationships written during the current import
+    private int extraction_threads = Runtime.getRuntime().availableProcessors();
+    private int extraction_queue_size = ExtractionPipeline.DEFAULT_QUEUE_SIZE;
+    private ReasonerStrategy default_reasoner_strategy = ReasonerStrategy.DEFAULT;  // Set via the command line
+    private ReasonerStrategy reasoner_strategy = ReasonerStrategy.DEFAULT;  // Used for the current ontology
+    private boolean nested_restrictions = false;  // Include restrictions nested in intersections
+    private boolean expand_equivalences = false;  // Write the hierarchy for every member of an equivalence set
+    private boolean stream_owl = false;  // Read asserted classes straight from RDF/XML instead of loading the ontology
+    private StreamingExtractor stream_extractor;  // Parsed document of the current ontology when streaming
+    long classification_time;
+    private TaxonomyCache taxonomy_cache;
+    private String cache_key;
+    private Taxonomy taxonomy;  // Class hierarchy of the current ontology, extracted or cached
+    private TaxonomyCache snapshot_store;  // Snapshots of previous imports for importing changes only
+    private Checkpoint checkpoint;
+    private int checkpoint_interval = Checkpoint.DEFAULT_INTERVAL;
+    private int classes_since_checkpoint;
+    private int batch_workers = 1;  // Number of ontologies of a batch imported at the same time
+    private boolean concurrent_output = false;  // Print whole lines only as other imports print at the same time
+    private File metrics_directory;  // Metrics are only written when set
+    private Metrics metrics;  // Metrics of the current import
+
+    // Timing of the last import for the batch summary and the import benchmark
+    long load_time;
+    long import_time;
+    long extraction_time;  // Part of `import_time`, including the classification
+    long write_time;  // Part of `import_time`
+    private long write_start;
+    int classes_imported;
+    private long peak_heap;  // Peak heap usage during loading and extraction, only measured when planning
+    private boolean classification_cached;
+    private boolean skipped;
 
     private OWLOntologyManager manager;
     private OWLOntology ontology;
+    private Set<OWLClass> signature;  // Classes of the ontology, preferred as canonical members of equivalence sets
     private IRI documentIRI;
     private OWLDataFactory dataFactory;
     private String ontUri;
@@ -109,7 +146,7 @@ public class Owl2Neo4J {
     }
 
     // Inline class handling labels
-    public class Label {
+    public static class Label {
         private String text;
         private String lang;
 
@@ -152,30 +189,68 @@ public class Owl2Neo4J {
         public String toString() {
             return "(" + x + ", " + y + ")";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Tuple)) {
+                return false;
+            }
+            Tuple<?, ?> other = (Tuple<?, ?>) o;
+            return Objects.equals(this.x, other.x) && Objects.equals(this.y, other.y);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.x, this.y);
+        }
     }
 
     /**
      * Visits existential restrictions and collects the properties which are
-     * restricted.
+     * restricted. Restrictions nested in intersections are only visited when
+     * asked for.
      */
-    private static class RestrictionVisitor extends OWLClassExpressionVisitorAdapter {
+    static class RestrictionVisitor extends OWLClassExpressionVisitorAdapter {
 
-        private final Set<Tuple> restrictions;
+        private final Set<Tuple<OWLObjectPropertyExpression, OWLClass>> restrictions;
+        private final boolean nested;
 
         public RestrictionVisitor() {
-            restrictions = new HashSet<>();
+            this(false);
+        }
+
+        public RestrictionVisitor(boolean nested) {
+            restrictions = new LinkedHashSet<>();
+            this.nested = nested;
         }
 
-        public Set<Tuple> getRestrictions () {
+        public Set<Tuple<OWLObjectPropertyExpression, OWLClass>> getRestrictions () {
             return restrictions;
         }
 
+        /**
+         * Forgets the restrictions visited so far, so that the visitor can be
+         * reused.
+         */
+        public void clear () {
+            restrictions.clear();
+        }
+
+        @Override
+        public void visit(OWLObjectIntersectionOf clazz) {
+            if (nested) {
+                for (OWLClassExpression operand: clazz.getOperands()) {
+                    operand.accept(this);
+                }
+            }
+        }
+
         @Override
         public void visit(OWLObjectSomeValuesFrom clazz) {
             // This method gets called when a class expression is an existential
             // (someValuesFrom) restriction and it asks us to visit it
             if (! clazz.getFiller().isAnonymous()) {
-                restrictions.add(new Tuple(clazz.getProperty(), clazz.getFiller().asOWLClass()));
+                restrictions.add(new Tuple<>(clazz.getProperty(), clazz.getFiller().asOWLClass()));
             }
         }
     }
@@ -186,7 +261,9 @@ public class Owl2Neo4J {
         long startImport = System.nanoTime();
 
         if (StringUtils.isBlank(ontParser.path_to_batch)) {
-            ontParser.checkServer();
+            if (ontParser.path_to_csv_export == null && !ontParser.plan) {
+                ontParser.checkServer();
+            }
             ontParser.importOntologies();
         } else {
             JSONArray ontologies = new JSONArray();
@@ -211,27 +288,50 @@ public class Owl2Neo4J {
             // Read global properties
             try {
                 if (jsonObject.has("server")) {
-                    ontParser.server_root_url = jsonObject.getString("server");
+                    // Either the URL or a block with the URL and the connection settings
+                    JSONObject server = jsonObject.optJSONObject("server");
+                    if (server == null) {
+                        ontParser.server_root_url = jsonObject.getString("server");
+                    } else {
+                        if (server.has("url")) {
+                            ontParser.server_root_url = server.getString("url");
+                        }
+                        ontParser.http_options.update(server);
+                    }
                 }
             } catch (Exception e) {
                 print_error("Error extracting global settings.");
             }
 
-            ontParser.checkServer();
+            if (ontParser.path_to_csv_export == null && !ontParser.plan) {
+                ontParser.checkServer();
+            }
 
-            // Loop over ontologies to be imported and import them
+            // Set up an import of its own for every ontology and import them
+            List<Owl2Neo4J> imports = new ArrayList<>();
             try {
                 for (int i = 0; i < ontologies.length(); i++) {
-                    ontParser.path_to_owl = new File(basePath, ontologies.getJSONObject(i).getString("o")).getPath();
-                    ontParser.ontology_name = ontologies.getJSONObject(i).getString("n");
-                    ontParser.ontology_acronym = ontologies.getJSONObject(i).getString("a").toUpperCase();
+                    Owl2Neo4J ontImport = new Owl2Neo4J(ontParser);
+                    ontImport.path_to_owl = new File(basePath, ontologies.getJSONObject(i).getString("o")).getPath();
+                    ontImport.ontology_name = ontologies.getJSONObject(i).getString("n");
+                    ontImport.ontology_acronym = ontologies.getJSONObject(i).getString("a").toUpperCase();
                     if (ontologies.getJSONObject(i).has("i")) {
-                        ontParser.include_import_closure = ontologies.getJSONObject(i).getBoolean("i");
+                        ontImport.include_import_closure = ontologies.getJSONObject(i).getBoolean("i");
+                    } else {
+                        ontImport.include_import_closure = false;
+                    }
+                    if (ontologies.getJSONObject(i).has("r")) {
+                        ontImport.reasoner_strategy = ReasonerStrategy.fromOption(ontologies.getJSONObject(i).getString("r"));
                     } else {
-                        ontParser.include_import_closure = false;
+                        ontImport.reasoner_strategy = ontParser.default_reasoner_strategy;
                     }
-                    ontParser.importOntologies();
+                    // Ontologies asking for imports or a reasoner are loaded as usual
+                    ontImport.stream_owl = ontParser.stream_owl &&
+                        !ontImport.include_import_closure &&
+                        !ontologies.getJSONObject(i).has("r");
+                    imports.add(ontImport);
                 }
+                ontParser.importBatch(imports);
             }  catch (Exception e) {
                 print_error("Error during batch import");
                 print_error(e.getMessage());
@@ -239,6 +339,15 @@ public class Owl2Neo4J {
             }
         }
 
+        if (ontParser.path_to_csv_export != null) {
+            ontParser.writeCsvNodes();
+        }
+
+        // Everything has been imported, so there is nothing left to resume
+        if (ontParser.checkpoint != null) {
+            ontParser.checkpoint.delete();
+        }
+
         long endImport = System.nanoTime();
 
         long totalImportMin = TimeUnit.NANOSECONDS.toMinutes(endImport - startImport);
@@ -263,6 +372,9 @@ public class Owl2Neo4J {
                     totalImportSec +
                     " sec"
             );
+            if (ontParser.http_transport != null) {
+                ontParser.http_transport.printStats();
+            }
         }
     }
 
@@ -270,81 +382,199 @@ public class Owl2Neo4J {
         parseCommandLineArguments(args);
     }
 
+    /**
+     * Creates the import of a single ontology of a batch. It shares the
+     * settings, but nothing that changes during an import, with the batch.
+     */
+    private Owl2Neo4J(Owl2Neo4J batch) {
+        this.server_root_url = batch.server_root_url;
+        this.neo4j_authentication_header = batch.neo4j_authentication_header;
+        this.neo4j_user = batch.neo4j_user;
+        this.neo4j_password = batch.neo4j_password;
+        this.eqps = batch.eqps;
+        this.nested_restrictions = batch.nested_restrictions;
+        this.expand_equivalences = batch.expand_equivalences;
+        this.label_languages = batch.label_languages;
+        this.no_local_owl_files = batch.no_local_owl_files;
+        this.write_options = batch.write_options;
+        this.http_options = batch.http_options;
+        this.http_transport = batch.http_transport;
+        this.path_to_csv_export = batch.path_to_csv_export;
+        this.exported_nodes = batch.exported_nodes;
+        this.plan = batch.plan;
+        this.extraction_threads = batch.extraction_threads;
+        this.extraction_queue_size = batch.extraction_queue_size;
+        this.default_reasoner_strategy = batch.default_reasoner_strategy;
+        this.reasoner_strategy = batch.reasoner_strategy;
+        this.stream_owl = batch.stream_owl;
+        this.taxonomy_cache = batch.taxonomy_cache;
+        this.snapshot_store = batch.snapshot_store;
+        this.checkpoint = batch.checkpoint;
+        this.checkpoint_interval = batch.checkpoint_interval;
+        this.metrics_directory = batch.metrics_directory;
+        this.concurrent_output = batch.batch_workers > 1;
+        this.verbose_output = batch.verbose_output;
+    }
+
+    /**
+     * Writes the node files of the CSV export once all ontologies have been
+     * exported, see `CsvNodeTable`.
+     */
+    private void writeCsvNodes() {
+        try {
+            this.exported_nodes.write();
+        } catch (IOException e) {
+            print_error("Error writing the CSV node files");
+            print_error(e.getMessage());
+            System.exit(1);
+        }
+    }
+
     public void checkServer() {
         if (StringUtils.isBlank(this.server_root_url)) {
             this.server_root_url = "http://localhost:7474";
         }
 
-        Unirest.setDefaultHeader("Content-type", "application/json");
-        Unirest.setDefaultHeader("Accept", "application/json; charset=UTF-8");
-        // Yields better performance and reduces memory load on the Neo4J server
-        // http://neo4j.com/docs/stable/rest-api-streaming.html
-        Unirest.setDefaultHeader("X-Stream", "true");
-        Unirest.setDefaultHeader(
-            "Authorization", this.neo4j_authentication_header
-        );
-
-        // Test if server is available
-        try {
-            if (this.verbose_output) {
-                System.out.println("Checking Neo4J at " + this.server_root_url + "... " + ANSI_DIM);
-            } else {
-                System.out.print("Checking Neo4J at " + this.server_root_url + "... ");
-            }
+        if (BoltGraphSink.isBoltUrl(this.server_root_url)) {
+            BoltGraphSink.checkServer(this.server_root_url, this.neo4j_user, this.neo4j_password, this.verbose_output);
+        } else {
+            this.http_transport = RestGraphSink.checkServer(
+                this.server_root_url,
+                this.neo4j_authentication_header,
+                this.http_options,
+                this.verbose_output
+            );
+        }
+    }
 
-            Unirest.get(
-                this.server_root_url
-            ).asJson();
+    /**
+     * Imports the ontologies of a batch, `batch_workers` of them at the same
+     * time. Each import loads, classifies and writes its ontology in its own
+     * transaction.
+     */
+    private void importBatch(final List<Owl2Neo4J> imports) throws Exception {
+        long start = System.nanoTime();
 
-            if (this.verbose_output) {
-                System.out.println(ANSI_RESET + "Checking Neo4J at " + this.server_root_url + "... " + ANSI_GREEN + "\u2713" + ANSI_RESET);
-            } else {
-                System.out.println(ANSI_GREEN + "\u2713" + ANSI_RESET);
+        if (this.batch_workers <= 1) {
+            for (Owl2Neo4J ontImport: imports) {
+                ontImport.importOntologies();
+            }
+        } else {
+            final AtomicInteger imported = new AtomicInteger(0);
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.batch_workers, imports.size()));
+            List<Future<?>> futures = new ArrayList<>();
+            for (final Owl2Neo4J ontImport: imports) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        ontImport.importOntologies();
+                        System.out.println(
+                            ANSI_DIM + "Imported " + imported.incrementAndGet() + " of " + imports.size() +
+                                " ontologies" + ANSI_RESET_DIM
+                        );
+                    }
+                }));
+            }
+            executor.shutdown();
+            try {
+                for (Future<?> future: futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                throw new Exception(e.getCause());
             }
-        } catch (Exception e) {
-            print_error("Error querying Neo4J server root URL");
-            print_error(e.getMessage());
-            System.exit(1);
         }
 
-        // Try authentication
-        try {
-            if (this.verbose_output) {
-                System.out.println("Checking credentials for Neo4J... " + ANSI_DIM);
-            } else {
-                System.out.print("Checking credentials for Neo4J... ");
+        if (this.batch_workers > 1 || this.verbose_output) {
+            long wallTime = System.nanoTime() - start;
+            long totalTime = 0;
+            System.out.println("---");
+            System.out.println("Imported " + imports.size() + " ontologies with " + this.batch_workers + " worker(s):");
+            for (Owl2Neo4J ontImport: imports) {
+                if (ontImport.skipped) {
+                    System.out.println("  " + ontImport.ontology_acronym + ": imported before");
+                    continue;
+                }
+                totalTime += ontImport.load_time + ontImport.import_time;
+                System.out.println(
+                    "  " + ontImport.ontology_acronym +
+                        ": loading " + formatDuration(ontImport.load_time) +
+                        ", importing " + formatDuration(ontImport.import_time) +
+                        ", classification " +
+                        (ontImport.classification_cached ? "cached" : formatDuration(ontImport.classification_time))
+                );
             }
+            System.out.println("Sum of import times: " + formatDuration(totalTime));
+            System.out.println("Elapsed time:        " + formatDuration(wallTime));
+        }
 
-            Unirest.get(
-                this.server_root_url + REST_ENDPOINT
-            ).asJson();
-
-            if (this.verbose_output) {
-                System.out.println(ANSI_RESET + "Checking credentials for Neo4J... " + ANSI_GREEN + "\u2713" + ANSI_RESET);
-            } else {
-                System.out.println(ANSI_GREEN + "\u2713" + ANSI_RESET);
+        if (this.metrics_directory != null) {
+            List<Metrics> metrics = new ArrayList<>();
+            for (Owl2Neo4J ontImport: imports) {
+                if (ontImport.metrics != null) {
+                    metrics.add(ontImport.metrics);
+                }
             }
-        } catch (Exception e) {
-            print_error("Error querying Neo4J REST endpoint");
-            print_error(e.getMessage());
-            System.exit(1);
+            Metrics.writeBatch(this.metrics_directory, metrics, System.nanoTime() - start);
         }
     }
 
+    private static String formatDuration(long nanos) {
+        long min = TimeUnit.NANOSECONDS.toMinutes(nanos);
+        long sec = TimeUnit.NANOSECONDS.toSeconds(nanos) - (60 * min);
+        return min + " min and " + sec + " sec";
+    }
+
     public void importOntologies() {
         long loadTimeSec;
         long loadTimeMin;
 
+        if (this.checkpoint != null && this.checkpoint.isCompleted(this.checkpointKey())) {
+            System.out.println(
+                "Skipping " + this.ontology_acronym + "... " + ANSI_GREEN + "\u2713" + ANSI_RESET +
+                    ANSI_DIM + "  (imported before)" + ANSI_RESET_DIM
+            );
+            this.skipped = true;
+            return;
+        }
+
+        this.metrics = new Metrics(this.ontology_acronym);
+        // Ontologies loaded at the same time share the heap, so their peak can't be told apart
+        if (this.plan && !this.concurrent_output) {
+            resetPeakHeap();
+        }
+
         try {
             if (this.verbose_output) {
                 System.out.println("Loading " + this.ontology_acronym + "... " + ANSI_DIM);
-            } else {
+            } else if (!this.concurrent_output) {
                 System.out.print("Loading " + this.ontology_acronym + "... ");
             }
 
             long start = System.nanoTime();
-            this.loadOntology();
+            this.taxonomy = null;
+            if (this.taxonomy_cache != null) {
+                this.cache_key = TaxonomyCache.key(new File(this.path_to_owl), this.cacheSettings());
+                TaxonomyCache.Entry cached = this.taxonomy_cache.read(this.cache_key);
+                if (cached != null) {
+                    this.taxonomy = cached.taxonomy;
+                    this.ontUri = cached.ontologyUri;
+                    this.versionIri = cached.versionIri;
+                }
+            }
+            if (this.taxonomy != null) {
+                // Nothing to load
+                if (this.verbose_output) {
+                    System.out.println("Using cached taxonomy " + this.cache_key);
+                }
+            } else if (this.stream_owl) {
+                this.streamOntology();
+            } else {
+                this.loadOntology();
+            }
             long end = System.nanoTime();
+            this.load_time = end - start;
             loadTimeMin = TimeUnit.NANOSECONDS.toMinutes(end - start);
             loadTimeSec = TimeUnit.NANOSECONDS.toSeconds(end - start) - (60 * loadTimeMin);
 
@@ -352,12 +582,13 @@ public class Owl2Neo4J {
                 System.out.println(ANSI_RESET + "Loading " + this.ontology_acronym + "... " + ANSI_GREEN + "\u2713" + ANSI_RESET);
             } else {
                 System.out.println(
+                    (this.concurrent_output ? "Loading " + this.ontology_acronym + "... " : "") +
                     ANSI_GREEN + "\u2713 " + ANSI_RESET +
                         ANSI_DIM + "  ("  + loadTimeMin + " min and " + loadTimeSec + " sec)" + ANSI_RESET_DIM
                 );
             }
         } catch (Exception e) {
-            print_error("Error loading the ontology");
+            print_error("Error loading the ontology" + (this.concurrent_output ? " " + this.ontology_acronym : ""));
             print_error(e.getMessage());
             System.exit(1);
         }
@@ -367,29 +598,58 @@ public class Owl2Neo4J {
         try {
             if (this.verbose_output) {
                 System.out.println("Importing " + this.ontology_acronym + "... " + ANSI_DIM);
-            } else {
+            } else if (!this.concurrent_output) {
                 System.out.print("Importing " + this.ontology_acronym + "... ");
             }
 
+            boolean cached = this.taxonomy != null;
             long start = System.nanoTime();
+            this.classes_since_checkpoint = 0;
             this.importOntology();
+            if (this.checkpoint != null) {
+                this.checkpoint.completed(this.checkpointKey());
+            }
             long end = System.nanoTime();
+            this.import_time = end - start;
+            this.classification_cached = cached;
             importTimeMin = TimeUnit.NANOSECONDS.toMinutes(end - start);
             importTimeSec = TimeUnit.NANOSECONDS.toSeconds(end - start) - (60 * importTimeMin);
+            long classificationTimeMin = TimeUnit.NANOSECONDS.toMinutes(this.classification_time);
+            long classificationTimeSec = TimeUnit.NANOSECONDS.toSeconds(this.classification_time) - (60 * classificationTimeMin);
+            String classification = cached ? "cached" : classificationTimeMin + " min and " + classificationTimeSec + " sec";
 
             if (this.verbose_output) {
                 System.out.println(ANSI_RESET + "Importing " + this.ontology_acronym + "... " + ANSI_GREEN + "\u2713" + ANSI_RESET);
+                System.out.println(
+                    "Classification (" + (this.stream_owl ? "none, asserted only" : this.reasoner_strategy.getDescription()) + "): " +
+                        classification
+                );
             } else {
                 System.out.println(
+                    (this.concurrent_output ? "Importing " + this.ontology_acronym + "... " : "") +
                     ANSI_GREEN + "\u2713" + ANSI_RESET +
-                        ANSI_DIM + "  (" + importTimeMin + " min and " + importTimeSec + " sec)" + ANSI_RESET_DIM
+                        ANSI_DIM + "  (" + importTimeMin + " min and " + importTimeSec + " sec, classification " +
+                        classification + ")" + ANSI_RESET_DIM
                 );
             }
+            if (this.plan) {
+                ((PlanSink) this.sink).printReport(this.ontology_acronym, this.peak_heap);
+            }
         } catch (Exception e) {
-            print_error("Error importing the ontology");
+            print_error("Error importing the ontology" + (this.concurrent_output ? " " + this.ontology_acronym : ""));
             print_error(e.getMessage());
             System.exit(1);
         }
+
+        this.metrics.setPhase(Metrics.Phase.PARSE, this.load_time);
+        this.metrics.setPhase(Metrics.Phase.CLASSIFICATION, this.classification_cached ? 0 : this.classification_time);
+        this.metrics.setPhase(Metrics.Phase.EXTRACTION, this.extraction_time);
+        this.metrics.setPhase(Metrics.Phase.WRITE, this.write_time);
+        this.metrics.setPhase(Metrics.Phase.TOTAL, this.load_time + this.import_time);
+        this.metrics.setClasses(this.classes_imported);
+        if (this.metrics_directory != null) {
+            this.metrics.write(this.metrics_directory);
+        }
     }
 
     public void loadOntology() throws Exception {
@@ -432,21 +692,50 @@ public class Owl2Neo4J {
         }
     }
 
-    private void importOntology() throws Exception
-    {
-        OWLReasonerFactory reasonerFactory = new Reasoner.ReasonerFactory();
-        OWLReasonerConfiguration config;
+    /**
+     * Parses the RDF/XML document in one pass instead of loading it into the
+     * OWL API. The taxonomy is built from it during the extraction.
+     */
+    private void streamOntology() throws Exception {
+        File file = new File(this.path_to_owl);
+        if (!file.isFile()) {
+            throw new Exception("The option `-o` doesn't point to a file.");
+        }
+
+        this.stream_extractor = new StreamingExtractor(
+            new ArrayList<>(this.eqps),
+            this.nested_restrictions,
+            this.expand_equivalences,
+            this.label_languages,
+            this.ontology_acronym
+        );
+        this.stream_extractor.parse(file);
+        this.ontUri = this.stream_extractor.getOntologyUri();
+        this.versionIri = this.stream_extractor.getVersionIri();
+
         if (this.verbose_output) {
-            ConsoleProgressMonitor progressMonitor = new ConsoleProgressMonitor();
-            config = new SimpleConfiguration(
-                progressMonitor
-            );
-        } else {
-            config = new SimpleConfiguration();
+            System.out.println("Document:     " + file.getPath() + " (streamed)");
+            System.out.println("Ontology IRI: " + this.ontUri);
+            System.out.println("Version  IRI: " + this.versionIri);
+        }
+    }
+
+    /**
+     * Loads the ontology and extracts its taxonomy without writing anything,
+     * e.g. for comparing streaming with loading the ontology.
+     */
+    Taxonomy extract() throws Exception
+    {
+        if (this.stream_owl) {
+            this.streamOntology();
+            return this.stream_extractor.build(null);
         }
-        OWLReasoner reasoner = reasonerFactory.createReasoner(this.ontology, config);
-        reasoner.precomputeInferences();
+        this.loadOntology();
+        return this.extractTaxonomy(null);
+    }
 
+    private void importOntology() throws Exception
+    {
         // Init Cypher logger
         this.cqlLogger = Logger.getLogger("Cypher:" + this.ontology_acronym);
         if (this.verbose_output) {
@@ -461,547 +750,956 @@ public class Owl2Neo4J {
             }
         }
 
-        // This part was inspired by:
-        // http://neo4j.com/blog/and-now-for-something-completely-different-using-owl-with-neo4j/
-        try {
-            initTransaction();
+        this.sink = null;
+        this.emitted = new EmittedRegistry();
+        this.classification_time = 0;
+        this.classes_imported = 0;
 
-            // Create a node for the ontology
-            createNode(
-                ONTOLOGY_NODE_LABEL,
-                this.ontology_name,
-                this.ontUri
-            );
+        String resumeAfter = null;
+        if (this.checkpoint != null && this.snapshot_store == null) {
+            resumeAfter = this.checkpoint.getLastClass(this.checkpointKey());
+            if (resumeAfter != null && this.verbose_output) {
+                System.out.println("Resuming after " + resumeAfter);
+            }
+        }
 
-            setProperty(
-                ONTOLOGY_NODE_LABEL,
-                this.ontUri,
-                "acronym",
-                this.ontology_acronym
-            );
+        this.extractThenWrite(resumeAfter);
 
-            setProperty(
-                ONTOLOGY_NODE_LABEL,
-                this.ontUri,
-                "uri",
-                this.ontUri
+        if (this.verbose_output) {
+            System.out.println(
+                "Skipped " + this.emitted.getSkippedNodes() + " nodes and " +
+                    this.emitted.getSkippedRelationships() + " relationships which had been written already"
             );
+        }
 
-            if (this.versionIri != null) {
-                setProperty(
-                    ONTOLOGY_NODE_LABEL,
-                    this.ontUri,
-                    "version",
-                    this.versionIri
-                );
+        this.taxonomy = null;
+    }
+
+    /**
+     * Extracts the whole taxonomy before writing anything, so that the
+     * ontology and the reasoner can be released before writing starts, and
+     * every sink, `--cache` and `--diff` work off the same model.
+     */
+    private void extractThenWrite(String resumeAfter) throws Exception
+    {
+        long extractionStart = System.nanoTime();
+        if (this.taxonomy == null) {
+            // The cache needs all classes, not just the ones left to import
+            String extractAfter = this.taxonomy_cache == null ? resumeAfter : null;
+            if (this.stream_extractor != null) {
+                this.taxonomy = this.stream_extractor.build(extractAfter);
+            } else {
+                this.taxonomy = this.extractTaxonomy(extractAfter);
             }
+            // Cache everything before writing anything so that the cache survives failed writes.
+            if (this.taxonomy_cache != null) {
+                this.taxonomy_cache.write(this.cache_key, this.ontUri, this.versionIri, this.localImports(), this.taxonomy);
+            }
+            this.releaseOntology();
+        }
+        this.extraction_time = System.nanoTime() - extractionStart;
+        if (this.plan) {
+            this.peak_heap = peakHeap();
+        }
+        this.classes_imported = this.taxonomy.classes.length;
 
-            // Create root node "owl:Thing"
-            createNode(
-                CLASS_NODE_LABEL,
-                ROOT_CLASS_ONT_ID,
-                ROOT_CLASS_URI
+        if (this.verbose_output) {
+            System.out.println(
+                "Taxonomy: " + this.taxonomy.classes.length + " classes, " + this.taxonomy.size() +
+                    " classes including references, " + this.taxonomy.relationshipCount() + " relationships"
             );
+        }
 
-            if (!this.eqps.isEmpty()) {
-                for (String property: this.eqps) {
-                    this.eqp.add(this.dataFactory.getOWLObjectProperty(IRI.create(property)));
-                }
+        try {
+            this.openSink();
+            if (this.snapshot_store != null) {
+                this.importChanges();
+            } else {
+                this.writeTaxonomy(resumeAfter);
+                this.sink.close();
             }
+            this.write_time = System.nanoTime() - this.write_start;
+        } catch (Exception e) {
+            print_error(e.getMessage());
+            System.exit(1);
+        }
+    }
 
-            boolean firstTime = true;
-            ExecutorService aliveKeeper = null;
-
-            for (OWLClass c: this.ontology.getClassesInSignature(this.include_import_closure)) {
-                // Skip unsatisfiable classes like `owl:Nothing`.
-                if (!reasoner.isSatisfiable(c)) {
-                    continue;
-                }
-
-                String classString = c.toString();
-                String classUri = this.extractUri(classString);
-                String classOntID = this.getOntID(classUri);
-
-                String superClassString;
-                String superClassUri;
-                String superClassOntID;
+    /**
+     * Creates the sink together with the nodes of the ontology and of the
+     * root class.
+     */
+    private void openSink() throws Exception
+    {
+        // This part was inspired by:
+        // http://neo4j.com/blog/and-now-for-something-completely-different-using-owl-with-neo4j/
+        this.write_start = System.nanoTime();
+        this.sink = this.createSink();
+        this.sink.open();
+
+        // Create a node for the ontology
+        createNode(
+            ONTOLOGY_NODE_LABEL,
+            this.ontology_name,
+            this.ontUri
+        );
 
-                createNode(CLASS_NODE_LABEL, classOntID, classUri);
+        setProperty(
+            ONTOLOGY_NODE_LABEL,
+            this.ontUri,
+            "acronym",
+            this.ontology_acronym
+        );
 
-                this.storeLabel(c, classUri);
+        setProperty(
+            ONTOLOGY_NODE_LABEL,
+            this.ontUri,
+            "uri",
+            this.ontUri
+        );
 
-                if (firstTime) {
-                    aliveKeeper = keepTransactionAlive(
-                        this.server_root_url + TRANSACTION_ENDPOINT + this.transaction,
-                        150,
-                        this.verbose_output
-                    );
-                }
+        if (this.versionIri != null) {
+            setProperty(
+                ONTOLOGY_NODE_LABEL,
+                this.ontUri,
+                "version",
+                this.versionIri
+            );
+        }
 
-                // A node set is a set of nodes.
-                NodeSet<OWLClass> superClassNodeSet = reasoner.getSuperClasses(c, true);
+        // Create root node "owl:Thing"
+        createNode(
+            CLASS_NODE_LABEL,
+            ROOT_CLASS_ONT_ID,
+            ROOT_CLASS_URI
+        );
+    }
 
-                if (firstTime && aliveKeeper != null) {
-                    try {
-                        closeTransactionAliveKeeper(aliveKeeper, this.verbose_output);
-                    } catch (Exception e) {
-                        print_error("Couldn't shut down alive keeper");
-                        print_error(e.getMessage());
-                        System.exit(1);
-                    }
-                    firstTime = false;
-                }
+    /**
+     * Writes all extracted classes.
+     *
+     * @param resumeAfter Skip all classes up to and including the class with this URI.
+     */
+    private void writeTaxonomy(String resumeAfter) throws Exception
+    {
+        Taxonomy taxonomy = this.taxonomy;
+        int start = resumeAfter == null ? 0 : taxonomy.firstClassAfter(resumeAfter);
+        for (int i = start; i < taxonomy.classes.length; i++) {
+            this.writeClass(taxonomy, taxonomy.classes[i]);
+            this.classWritten(taxonomy.uris[taxonomy.classes[i]]);
+        }
+    }
 
-                if (superClassNodeSet.isEmpty()) {
-                    // When the set of superclasses is empty we relate the current Node to OWL:Thing.
-                    // This avoids subtrees with a root node other than OWL:Thing.
-                    createRelationship(
-                        CLASS_NODE_LABEL,
-                        classUri,
-                        CLASS_NODE_LABEL,
-                        ROOT_CLASS_URI,
-                        "RDFS:subClassOf"
-                    );
-                } else {
-                    // A node is a set of equivalent OWLClasses.
-                    // http://owlapi.sourceforge.net/javadoc/org/semanticweb/owlapi/reasoner/Node.html
-                    for (Node<OWLClass> superClassNode: superClassNodeSet) {
-                        if (superClassNode.isTopNode()) {
-                            // The top node represents owl:Thing and OWL classes equivalent to it.
-                            createRelationship(
-                                CLASS_NODE_LABEL,
-                                classUri,
-                                CLASS_NODE_LABEL,
-                                ROOT_CLASS_URI,
-                                "RDFS:subClassOf"
-                            );
-                        } else {
-                            // We iterate over all superclasses except unsatisfiable classes, e.g. owl:Nothing and other
-                            // classes equivalent to it.
-                            for (OWLClass superClass: superClassNode.getEntitiesMinusBottom()) {
-                                superClassString = superClass.toString();
-                                superClassUri = this.extractUri(superClassString);
-                                superClassOntID = this.getOntID(superClassUri);
-
-                                createNode(
-                                    CLASS_NODE_LABEL,
-                                    superClassOntID,
-                                    superClassUri
-                                );
-
-                                createRelationship(
-                                    CLASS_NODE_LABEL,
-                                    classUri,
-                                    CLASS_NODE_LABEL,
-                                    superClassUri,
-                                    "RDFS:subClassOf"
-                                );
-                            }
-                        }
-                    }
-                }
+    /**
+     * Commits everything written so far and moves the checkpoint forward every
+     * `checkpoint_interval` classes.
+     */
+    private void classWritten(String uri) throws Exception
+    {
+        if (this.checkpoint == null) {
+            return;
+        }
+        this.classes_since_checkpoint++;
+        if (this.classes_since_checkpoint >= this.checkpoint_interval) {
+            this.sink.commit();
+            this.checkpoint.committed(this.checkpointKey(), uri);
+            this.classes_since_checkpoint = 0;
+        }
+    }
 
-                if (!this.eqp.isEmpty()) {
-                    // Create a visitor for extracting existential restrictions they can be seen as some sort of class
-                    // property.
-                    // http://www.w3.org/TR/2004/REC-owl-guide-20040210/#PropertyRestrictions
-                    RestrictionVisitor restrictionVisitor = new RestrictionVisitor();
-
-                    // Get all subclass axioms for the current class
-                    for (OWLSubClassOfAxiom axiom: this.ontology.getSubClassAxiomsForSubClass(c)) {
-                        // Get all superclasses based on the axiom, which includes superclasses based on existential
-                        // restrictions.
-                        OWLClassExpression superClass = axiom.getSuperClass();
-                        // Ask our superclass to accept a visit from the RestrictionVisitor
-                        superClass.accept(restrictionVisitor);
-                    }
+    private String checkpointKey()
+    {
+        return this.ontology_acronym + " " + this.path_to_owl;
+    }
 
-                    for (Tuple restriction: restrictionVisitor.getRestrictions()) {
-                        if (this.eqp.contains(restriction.x)) {
-                            superClassString = restriction.y.toString();
-                            superClassUri = this.extractUri(superClassString);
-                            superClassOntID = this.getOntID(superClassUri);
-
-                            createNode(
-                                CLASS_NODE_LABEL,
-                                superClassOntID,
-                                superClassUri
-                            );
-
-                            createRelationship(
-                                CLASS_NODE_LABEL,
-                                classUri,
-                                CLASS_NODE_LABEL,
-                                superClassUri,
-                                this.getOntID(this.extractUri(restriction.x.toString()))
-                            );
-                        }
-                    }
-                }
+    /**
+     * Writes only the changes since the previous import of the ontology and
+     * replaces its snapshot once everything has been written. Without a
+     * previous snapshot everything is written.
+     */
+    private void importChanges() throws Exception
+    {
+        String snapshotKey = "snapshot-" + this.ontology_acronym;
+        TaxonomyCache.Entry snapshot = this.snapshot_store.readOutdated(snapshotKey);
+        Taxonomy previous = snapshot != null ? snapshot.taxonomy : null;
+        Taxonomy current = this.taxonomy;
 
-                Set<OWLClass> equivalentClasses = getEquivalentClasses(reasoner, c);
+        int[] changes = this.writeChanges(previous, current);
 
-                for (OWLClass ec : equivalentClasses) {
-                    String ecString = ec.toString();
-                    String ecUri = this.extractUri(ecString);
-                    String ecOntID = this.getOntID(ecUri);
+        this.sink.close();
+        if (this.plan) {
+            // Nothing has been written, so the previous snapshot stays the reference
+            return;
+        }
+        this.snapshot_store.write(
+            snapshotKey,
+            this.ontUri,
+            this.versionIri,
+            Collections.<String, String>emptyMap(),
+            current
+        );
 
-                    if (!ecUri.equals(classUri)) {
-                        createNode(
-                            CLASS_NODE_LABEL,
-                            ecOntID,
-                            ecUri
-                        );
+        if (this.verbose_output) {
+            System.out.println(
+                "Changes since the previous import: " + changes[0] + " new classes, " + changes[1] +
+                    " changed classes, " + changes[2] + " removed classes"
+            );
+        }
+    }
 
-                        createRelationship(
-                            CLASS_NODE_LABEL,
-                            ecUri,
-                            CLASS_NODE_LABEL,
-                            classUri,
-                            "OWL:equivalentClass"
-                        );
-                    }
+    /**
+     * Writes what changed between two imports of the ontology.
+     *
+     * @param previous The taxonomy of the previous import or `null`.
+     * @return The number of new, changed and removed classes.
+     */
+    private int[] writeChanges(Taxonomy previous, Taxonomy current) throws Exception
+    {
+        int newClasses = 0;
+        int changedClasses = 0;
+        int removedClasses = 0;
+
+        // Both taxonomies list their classes in the order of their URIs
+        int p = 0;
+        int previousSize = previous != null ? previous.classes.length : 0;
+        for (int c: current.classes) {
+            String uri = current.uris[c];
+            // Classes which disappeared
+            while (p < previousSize && previous.uris[previous.classes[p]].compareTo(uri) < 0) {
+                this.deleteRelationships(previous.record(previous.classes[p++]));
+                removedClasses++;
+            }
+            ClassRecord previousRecord = null;
+            if (p < previousSize && previous.uris[previous.classes[p]].equals(uri)) {
+                previousRecord = previous.record(previous.classes[p++]);
+            }
+            if (this.writeClassChanges(previousRecord, current, c)) {
+                if (previousRecord == null) {
+                    newClasses++;
+                } else {
+                    changedClasses++;
                 }
             }
-            commitTransaction();
-        } catch (Exception e) {
-            print_error(e.getMessage());
-            System.exit(1);
         }
+        while (p < previousSize) {
+            this.deleteRelationships(previous.record(previous.classes[p++]));
+            removedClasses++;
+        }
+
+        return new int[] {newClasses, changedClasses, removedClasses};
     }
 
-    public String extractUri (String classString) {
-        String classUri = classString;
-        int openingAngleBracketPos = classString.indexOf("<");
-        int closingAngleBracketPos = classString.lastIndexOf(">");
-        try {
-            if (openingAngleBracketPos >= 0 && closingAngleBracketPos >= 0) {
-                classUri = classString.substring(
-                    classString.indexOf("<") + 1,
-                    classString.lastIndexOf(">")
-                );
-            }
-        } catch (Exception e) {
-            print_error("Couldn't extract URI of '" + classString + "'");
-            print_error(e.getMessage());
-            System.exit(1);
-        }
-        return classUri;
+    /**
+     * Writes what changed between two imports to the given sink, e.g. for
+     * checking the changes without a snapshot store.
+     */
+    int[] writeChanges(Taxonomy previous, Taxonomy current, GraphSink sink) throws Exception
+    {
+        this.sink = sink;
+        this.emitted = new EmittedRegistry();
+        return this.writeChanges(previous, current);
     }
 
-    public String getOntID (String classUri) {
-        String idSpace = "";
-        String classOntID = classUri;
-        // First extract the substring after the last slash to avoid possible
-        // conflicts
-        if (classOntID.contains("/")) {
-            int lastSlash = classOntID.lastIndexOf("/");
-            if (lastSlash >= 0) {
-                String tmp = classOntID.substring(lastSlash);
-                if (tmp.length() == 1) {
-                    tmp = classOntID.substring(0, lastSlash);
-                    lastSlash = tmp.lastIndexOf("/");
-                    if (lastSlash >= 0) {
-                        tmp = tmp.substring(lastSlash);
-                    }
+    /**
+     * Classifies the ontology and extracts all satisfiable classes into a
+     * taxonomy. Classes are extracted in parallel.
+     *
+     * @param resumeAfter Only extract classes whose URI comes after this one.
+     */
+    private Taxonomy extractTaxonomy(String resumeAfter) throws Exception
+    {
+        OWLReasonerFactory reasonerFactory = this.reasoner_strategy.createFactory();
+        OWLReasonerConfiguration config;
+        if (this.verbose_output) {
+            ConsoleProgressMonitor progressMonitor = new ConsoleProgressMonitor();
+            config = new SimpleConfiguration(
+                progressMonitor
+            );
+        } else {
+            config = new SimpleConfiguration();
+        }
+
+        this.eqp = new HashMap<>();
+        for (String property: this.eqps) {
+            OWLObjectProperty objectProperty = this.dataFactory.getOWLObjectProperty(IRI.create(property));
+            this.eqp.put(objectProperty, this.getOntID(extractUri(objectProperty.toString())));
+        }
+
+        // Reasoners classify lazily, i.e. on the first hierarchy query, which can take a while. Classify upfront so
+        // that the workers below only read the finished taxonomy.
+        long classificationStart = System.nanoTime();
+        final OWLReasoner reasoner = reasonerFactory.createReasoner(this.ontology, config);
+        reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+        this.classification_time = System.nanoTime() - classificationStart;
+
+        // A stable order lets an interrupted import continue where it stopped
+        final Map<OWLClass, String> uris = new HashMap<>();
+        List<OWLClass> classes = new ArrayList<>();
+        this.signature = this.ontology.getClassesInSignature(this.include_import_closure);
+        for (OWLClass c: this.signature) {
+            String uri = extractUri(c.toString());
+            if (resumeAfter == null || uri.compareTo(resumeAfter) > 0) {
+                uris.put(c, uri);
+                classes.add(c);
+            }
+        }
+        Collections.sort(classes, new Comparator<OWLClass>() {
+            @Override
+            public int compare(OWLClass a, OWLClass b) {
+                return uris.get(a).compareTo(uris.get(b));
+            }
+        });
+
+        // IDs are assigned upfront so that the workers only need to turn classes of other ontologies into URIs
+        final Taxonomy.Builder builder = new Taxonomy.Builder();
+        final Map<OWLClass, Integer> ids = new ConcurrentHashMap<>();
+        ids.put(this.dataFactory.getOWLThing(), builder.id(ROOT_CLASS_URI, ROOT_CLASS_ONT_ID));
+        for (OWLClass c: classes) {
+            String uri = uris.get(c);
+            ids.put(c, builder.id(uri, this.getOntID(uri)));
+        }
+        uris.clear();
+
+        this.prepareConcurrentReads(classes);
+        final LabelIndex labels = this.indexLabels();
+        final RestrictionIndex restrictions = RestrictionIndex.build(
+            this.ontology, this.eqp, this.nested_restrictions, this.extraction_threads
+        );
+
+        ExtractionPipeline<OWLClass, Taxonomy.Entry> pipeline = new ExtractionPipeline<>(
+            this.reasoner_strategy.supportsConcurrentQueries() ? this.extraction_threads : 1,
+            this.extraction_queue_size
+        );
+        pipeline.run(
+            classes,
+            new ExtractionPipeline.Extractor<OWLClass, Taxonomy.Entry>() {
+                @Override
+                public Taxonomy.Entry extract(OWLClass c) {
+                    return extractClass(reasoner, builder, ids, labels, restrictions, c);
                 }
-                if (tmp.length() > 1) {
-                    classOntID = tmp.substring(1);
+            },
+            new ExtractionPipeline.Consumer<Taxonomy.Entry>() {
+                @Override
+                public void accept(Taxonomy.Entry entry) {
+                    builder.add(entry);
                 }
             }
+        );
+
+        reasoner.dispose();
+        return builder.build();
+    }
+
+    /**
+     * Drops the ontology once its taxonomy has been extracted so that it can
+     * be garbage collected before writing starts.
+     */
+    private void releaseOntology()
+    {
+        this.ontology = null;
+        this.signature = null;
+        this.manager = null;
+        this.stream_extractor = null;
+        this.eqp = new HashMap<>();
+    }
+
+    /**
+     * @return Path -> hash of all local files in the import closure except
+     *   the ontology itself.
+     */
+    private Map<String, String> localImports() throws IOException
+    {
+        Map<String, String> localImports = new TreeMap<>();
+        if (this.manager == null) {
+            // Streamed ontologies don't follow imports
+            return localImports;
         }
-        // OWL IDs start with `#` so we extract everything after that.
-        int hashPos = classOntID.indexOf("#");
-        if (hashPos >= 0 && hashPos + 1 != classOntID.length()) {
-            classOntID = classOntID.substring(
-                hashPos + 1
-            );
-            if (this.ontUri.equals(classUri.substring(0, classUri.indexOf("#")))) {
-                idSpace = this.ontology_acronym;
+        for (OWLOntology ont: this.manager.getImportsClosure(this.ontology)) {
+            IRI documentIRI = this.manager.getOntologyDocumentIRI(ont);
+            if (ont != this.ontology && "file".equals(documentIRI.getScheme())) {
+                File file = new File(documentIRI.toURI());
+                localImports.put(file.getAbsolutePath(), TaxonomyCache.hash(file));
             }
         }
-        // If the string contains an underscore than it is most likely an OBO ontology converted to OWL. The prefix is
-        // different in this case. We will use the ID space of OBO.
-        // For more details: http://www.obofoundry.org/id-policy.shtml
-        int underscorePos = classOntID.indexOf("_");
-        if (underscorePos >= 0 && underscorePos + 1 != classOntID.length()) {
-            if (idSpace.length() == 0) {
-                idSpace = classOntID.substring(
-                    0,
-                    underscorePos
-                );
-            }
-            classOntID = classOntID.substring(underscorePos + 1);
+        return localImports;
+    }
+
+    /**
+     * Settings which influence the extracted classes and are therefore part
+     * of the cache key.
+     */
+    private List<String> cacheSettings()
+    {
+        List<String> settings = new ArrayList<>();
+        settings.add("version=" + VERSION);
+        // Class IDs of the taxonomy may be prefixed with the acronym
+        settings.add("acronym=" + this.ontology_acronym);
+        settings.add("reasoner=" + (this.stream_owl ? "stream" : this.reasoner_strategy.getOption()));
+        settings.add("imports=" + this.include_import_closure);
+        settings.add("local=" + !this.no_local_owl_files);
+        for (String property: this.eqps) {
+            settings.add("eqp=" + property);
         }
-        if (idSpace.length() > 0) {
-            idSpace = idSpace.toUpperCase() + ":";
+        for (String language: this.label_languages) {
+            settings.add("label-lang=" + language);
         }
-        return idSpace + classOntID;
+        if (this.nested_restrictions) {
+            settings.add("nested-restrictions=true");
+        }
+        settings.add("equivalences=" + (this.expand_equivalences ? "expanded" : "canonical"));
+        return settings;
     }
 
-    private Label getLabel (OWLClass c, OWLOntology ont) {
-        Label classLabel = new Label(null, null);
-        for (OWLAnnotation annotation : c.getAnnotations(ont, this.dataFactory.getRDFSLabel())) {
-            if (annotation.getValue() instanceof OWLLiteral) {
-                OWLLiteral val = (OWLLiteral) annotation.getValue();
+    /**
+     * The OWL API builds its axiom indexes lazily and not thread-safe on first access. Building them here, before the
+     * extraction workers start, leaves the workers with read-only access.
+     */
+    private void prepareConcurrentReads (List<OWLClass> classes) {
+        if (classes.isEmpty()) {
+            return;
+        }
+        this.ontology.getSubClassAxiomsForSubClass(classes.get(0));
+    }
 
-                classLabel.setText(val.getLiteral().replace("'", "\\'"));
-                classLabel.setLang(val.getLang());
+    /**
+     * Collects the labels of the ontology and its import closure in one pass
+     * instead of looking them up for every class.
+     */
+    private LabelIndex indexLabels () {
+        LabelIndex labels = new LabelIndex(this.label_languages);
+        labels.index(this.ontology);
+        for (OWLOntology ont: this.ontology.getImportsClosure()) {
+            if (ont != this.ontology) {
+                labels.index(ont);
             }
         }
-        return classLabel;
+        return labels;
     }
 
-    private void storeLabel (OWLClass c, String classUri) {
-        Label classLabel = this.getLabel(c, this.ontology);
+    /**
+     * Queries the reasoner and the ontology for everything that is written for a class. Called concurrently by the
+     * extraction workers.
+     *
+     * @return The extracted class or `null` for unsatisfiable classes.
+     */
+    private Taxonomy.Entry extractClass (
+        OWLReasoner reasoner,
+        Taxonomy.Builder builder,
+        Map<OWLClass, Integer> ids,
+        LabelIndex labels,
+        RestrictionIndex restrictions,
+        OWLClass c
+    ) {
+        // Skip unsatisfiable classes like `owl:Nothing`.
+        if (!reasoner.isSatisfiable(c)) {
+            return null;
+        }
+
+        Taxonomy.Entry entry = new Taxonomy.Entry(this.classId(builder, ids, c));
+
+        Label classLabel = labels.get(c.getIRI().toString());
+        entry.label = classLabel.getText();
+        entry.labelLang = classLabel.getLang();
+
+        // Members of an equivalence set other than the canonical one only point to it, the hierarchy is attached to
+        // the canonical member.
+        Node<OWLClass> equivalentClasses = reasoner.getEquivalentClasses(c);
+        if (!this.expand_equivalences) {
+            OWLClass canonical = this.canonicalClass(equivalentClasses);
+            if (!canonical.equals(c)) {
+                entry.equivalentClasses.add(this.classId(builder, ids, canonical));
+                this.addRestrictions(builder, ids, restrictions, entry, c);
+                return entry;
+            }
+        }
+
+        // A node set is a set of nodes.
+        NodeSet<OWLClass> superClassNodeSet = reasoner.getSuperClasses(c, true);
 
-        if (StringUtils.isBlank(classLabel.text)) {
-            Set<OWLOntology> importedOntologies = this.ontology.getImports();
-            for (OWLOntology ont: importedOntologies) {
-                classLabel = this.getLabel(c, ont);
-                if (StringUtils.isNotEmpty(classLabel.text)) {
-                    break;
+        if (superClassNodeSet.isEmpty()) {
+            // When the set of superclasses is empty we relate the current Node to OWL:Thing.
+            // This avoids subtrees with a root node other than OWL:Thing.
+            entry.superClasses.add(this.classId(builder, ids, this.dataFactory.getOWLThing()));
+        } else {
+            // A node is a set of equivalent OWLClasses.
+            // http://owlapi.sourceforge.net/javadoc/org/semanticweb/owlapi/reasoner/Node.html
+            for (Node<OWLClass> superClassNode: superClassNodeSet) {
+                if (superClassNode.isTopNode()) {
+                    // The top node represents owl:Thing and OWL classes equivalent to it.
+                    entry.superClasses.add(this.classId(builder, ids, this.dataFactory.getOWLThing()));
+                } else if (!this.expand_equivalences) {
+                    entry.superClasses.add(this.classId(builder, ids, this.canonicalClass(superClassNode)));
+                } else {
+                    // We iterate over all superclasses except unsatisfiable classes, e.g. owl:Nothing and other
+                    // classes equivalent to it.
+                    for (OWLClass superClass: superClassNode.getEntitiesMinusBottom()) {
+                        entry.superClasses.add(this.classId(builder, ids, superClass));
+                    }
                 }
             }
         }
 
-        if (StringUtils.isNotBlank(classLabel.text)) {
+        this.addRestrictions(builder, ids, restrictions, entry, c);
+
+        if (this.expand_equivalences) {
+            for (OWLClass ec : equivalentClasses) {
+                if (!ec.equals(c)) {
+                    entry.equivalentClasses.add(this.classId(builder, ids, ec));
+                }
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Existential restrictions can be seen as some sort of class property.
+     * http://www.w3.org/TR/2004/REC-owl-guide-20040210/#PropertyRestrictions
+     */
+    private void addRestrictions (
+        Taxonomy.Builder builder,
+        Map<OWLClass, Integer> ids,
+        RestrictionIndex restrictions,
+        Taxonomy.Entry entry,
+        OWLClass c
+    ) {
+        for (Tuple<String, OWLClass> restriction: restrictions.get(c)) {
+            entry.addRestriction(restriction.x, this.classId(builder, ids, restriction.y));
+        }
+    }
+
+    /**
+     * Picks the member of an equivalence set which represents it, i.e.
+     * `owl:Thing` for the top node and otherwise the member with the
+     * smallest URI, preferring classes of the ontology over imported ones.
+     * The choice only depends on the set, so every member picks the same.
+     */
+    private OWLClass canonicalClass (Node<OWLClass> node) {
+        if (node.isTopNode()) {
+            return this.dataFactory.getOWLThing();
+        }
+        OWLClass canonical = null;
+        boolean canonicalIsLocal = false;
+        for (OWLClass member: node.getEntitiesMinusBottom()) {
+            boolean isLocal = this.signature.contains(member);
+            if (
+                canonical == null ||
+                (isLocal && !canonicalIsLocal) ||
+                (isLocal == canonicalIsLocal && member.getIRI().toString().compareTo(canonical.getIRI().toString()) < 0)
+            ) {
+                canonical = member;
+                canonicalIsLocal = isLocal;
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * @return The ID of the class. Classes without an ID yet, e.g. classes of
+     *   imported ontologies, get one now.
+     */
+    private int classId (Taxonomy.Builder builder, Map<OWLClass, Integer> ids, OWLClass c) {
+        Integer id = ids.get(c);
+        if (id == null) {
+            String uri = extractUri(c.toString());
+            id = builder.id(uri, this.getOntID(uri));
+            ids.put(c, id);
+        }
+        return id;
+    }
+
+    /**
+     * Writes an extracted class, its labels and its relationships.
+     */
+    private void writeClass (Taxonomy taxonomy, int id) throws Exception {
+        String uri = taxonomy.uris[id];
+
+        createNode(CLASS_NODE_LABEL, taxonomy.ontIDs[id], uri);
+        this.writeLabel(uri, taxonomy.labels[id], taxonomy.labelLangs[id]);
+        this.sink.completeNode(CLASS_NODE_LABEL, uri);
+
+        Taxonomy.Edges superClasses = taxonomy.superClasses;
+        for (int i = superClasses.start(id); i < superClasses.end(id); i++) {
+            int superClass = superClasses.targets[i];
+            this.writeSuperClass(uri, taxonomy.uris[superClass], taxonomy.ontIDs[superClass]);
+        }
+
+        for (int r = 0; r < taxonomy.restrictions.length; r++) {
+            Taxonomy.Edges restrictions = taxonomy.restrictions[r];
+            for (int i = restrictions.start(id); i < restrictions.end(id); i++) {
+                int filler = restrictions.targets[i];
+                this.writeRestriction(uri, taxonomy.uris[filler], taxonomy.ontIDs[filler], taxonomy.restrictionTypes[r]);
+            }
+        }
+
+        Taxonomy.Edges equivalentClasses = taxonomy.equivalentClasses;
+        for (int i = equivalentClasses.start(id); i < equivalentClasses.end(id); i++) {
+            int ec = equivalentClasses.targets[i];
+            this.writeEquivalentClass(uri, taxonomy.uris[ec], taxonomy.ontIDs[ec]);
+        }
+    }
+
+    private void writeLabel (String classUri, String label, String labelLang) throws Exception {
+        if (StringUtils.isNotBlank(label)) {
             setProperty(
                 CLASS_NODE_LABEL,
                 classUri,
                 "rdfs:label",
-                classLabel.text
+                label
             );
         }
 
-        if (StringUtils.isNoneBlank(classLabel.lang)) {
+        if (StringUtils.isNoneBlank(labelLang)) {
             setProperty(
                 CLASS_NODE_LABEL,
                 classUri,
                 "labelLang",
-                classLabel.lang
+                labelLang
             );
         }
     }
 
-    private Set<OWLClass> getEquivalentClasses (OWLReasoner reasoner, OWLClass c) {
-        Node<OWLClass> equivalentClasses = reasoner.getEquivalentClasses(c);
-        Set<OWLClass> results;
-        if (!c.isAnonymous()) {
-            results = equivalentClasses.getEntities();
-        } else {
-            results = equivalentClasses.getEntitiesMinus(c.asOWLClass());
+    private void writeSuperClass (String classUri, String superClassUri, String superClassOntID) throws Exception {
+        // The root node has been created upfront
+        if (!ROOT_CLASS_URI.equals(superClassUri)) {
+            createNode(
+                CLASS_NODE_LABEL,
+                superClassOntID,
+                superClassUri
+            );
         }
-        return results;
+
+        createRelationship(
+            CLASS_NODE_LABEL,
+            classUri,
+            CLASS_NODE_LABEL,
+            superClassUri,
+            "RDFS:subClassOf"
+        );
     }
 
-    private void initTransaction () {
-        // Fire empty statement to initialize transaction
-        try {
-            HttpResponse<JsonNode> response = Unirest.post(
-                this.server_root_url + TRANSACTION_ENDPOINT)
-                    .body("{\"statements\":[]}")
-                    .asJson();
-            Headers headers = response.getHeaders();
-            String location = "";
-            if (headers.containsKey("location")) {
-                location = headers.get("location").toString();
-                this.transaction = location.substring(
-                    location.lastIndexOf("/"),
-                    location.length() -1
-                );
+    private void writeRestriction (String classUri, String fillerUri, String fillerOntID, String relationship) throws Exception {
+        createNode(
+            CLASS_NODE_LABEL,
+            fillerOntID,
+            fillerUri
+        );
+
+        createRelationship(
+            CLASS_NODE_LABEL,
+            classUri,
+            CLASS_NODE_LABEL,
+            fillerUri,
+            relationship
+        );
+    }
+
+    /**
+     * Relates a class to an equivalent class. Relationships point from the
+     * extracted class to the equivalent one, i.e. from every other member of
+     * an equivalence set to its canonical member, or, with
+     * `--expand-equivalences`, from every member to every other member.
+     * `--stream` and `--diff` use the same direction.
+     */
+    private void writeEquivalentClass (String classUri, String ecUri, String ecOntID) throws Exception {
+        createNode(
+            CLASS_NODE_LABEL,
+            ecOntID,
+            ecUri
+        );
+
+        createRelationship(
+            CLASS_NODE_LABEL,
+            classUri,
+            CLASS_NODE_LABEL,
+            ecUri,
+            "OWL:equivalentClass"
+        );
+    }
+
+    /**
+     * Writes only what changed between the previous and the current import of
+     * a class. Classes which are new are written completely.
+     *
+     * @param previous The class as it was imported last time or `null`.
+     * @return `true` if anything has been written.
+     */
+    private boolean writeClassChanges (ClassRecord previous, Taxonomy taxonomy, int id) throws Exception {
+        if (previous == null) {
+            this.writeClass(taxonomy, id);
+            return true;
+        }
+
+        String uri = taxonomy.uris[id];
+        String label = taxonomy.labels[id];
+        String labelLang = taxonomy.labelLangs[id];
+        boolean changed = false;
+
+        // Blank labels aren't written at all
+        if (!StringUtils.equals(StringUtils.trimToNull(previous.label), StringUtils.trimToNull(label))) {
+            if (StringUtils.isNotBlank(label)) {
+                setProperty(CLASS_NODE_LABEL, uri, "rdfs:label", label);
+            } else {
+                this.sink.removeProperty(CLASS_NODE_LABEL, uri, "rdfs:label");
             }
-            if (this.verbose_output) {
-                System.out.println(
-                    "Transaction initialized. Commit at " +
-                        location +
-                        " [Neo4J status:" +
-                        Integer.toString(response.getStatus()) +
-                        "]"
-                );
+            changed = true;
+        }
+
+        if (!StringUtils.equals(StringUtils.trimToNull(previous.labelLang), StringUtils.trimToNull(labelLang))) {
+            if (StringUtils.isNoneBlank(labelLang)) {
+                setProperty(CLASS_NODE_LABEL, uri, "labelLang", labelLang);
+            } else {
+                this.sink.removeProperty(CLASS_NODE_LABEL, uri, "labelLang");
             }
-            checkForError(response);
-        } catch (Exception e) {
-            print_error(ANSI_RESET_DIM + "Error initiating transaction");
-            print_error(e.getMessage());
-            System.exit(1);
+            changed = true;
         }
-    }
 
-    private void commitTransaction () {
-        // Fire empty statement to initialize transaction
-        try {
-            HttpResponse<JsonNode> response = Unirest.post(
-                this.server_root_url + TRANSACTION_ENDPOINT + this.transaction + "/commit")
-                .body("{\"statements\":[]}")
-                    .asJson();
-            if (this.verbose_output) {
-                System.out.println(
-                    "Transaction committed. [Neo4J status:" +
-                    Integer.toString(response.getStatus()) +
-                    "]"
-                );
+        Set<String> previousSuperClasses = referenceKeys(previous.superClasses);
+        Taxonomy.Edges superClasses = taxonomy.superClasses;
+        for (int i = superClasses.start(id); i < superClasses.end(id); i++) {
+            int superClass = superClasses.targets[i];
+            if (!previousSuperClasses.remove(referenceKey(taxonomy.uris[superClass], null))) {
+                this.writeSuperClass(uri, taxonomy.uris[superClass], taxonomy.ontIDs[superClass]);
+                changed = true;
             }
-            checkForError(response);
-        } catch (Exception e) {
-            print_error(ANSI_RESET_DIM + "Error committing transaction");
-            print_error(e.getMessage());
-            System.exit(1);
         }
-    }
 
-    private ExecutorService keepTransactionAlive (final String url, final int interval, final boolean verbose) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(new Runnable() {
-            @Override
-            public void run() {
-                boolean looping = true;
-                while (looping) {
-                    // Fire empty statement to keep transaction alive
-                    try {
-                        TimeUnit.SECONDS.sleep(interval);
-                        HttpResponse<JsonNode> response = Unirest.post(url)
-                            .body("{\"statements\":[]}")
-                            .asJson();
-                        if (verbose) {
-                            System.out.println(
-                                "Pinging transaction. [Neo4J status:" +
-                                    Integer.toString(response.getStatus()) +
-                                    "]"
-                            );
-                        }
-                    } catch (InterruptedException e) {
-                        if (verbose) {
-                            System.out.println("Stop alive keeper");
-                        }
-                        looping = false;
-                    } catch (Exception e) {
-                        print_error(ANSI_RESET_DIM + "Error keeping transaction alive");
-                        print_error(e.getMessage());
-                        System.exit(1);
-                    }
+        Set<String> previousRestrictions = referenceKeys(previous.restrictions);
+        for (int r = 0; r < taxonomy.restrictions.length; r++) {
+            Taxonomy.Edges restrictions = taxonomy.restrictions[r];
+            for (int i = restrictions.start(id); i < restrictions.end(id); i++) {
+                int filler = restrictions.targets[i];
+                if (!previousRestrictions.remove(referenceKey(taxonomy.uris[filler], taxonomy.restrictionTypes[r]))) {
+                    this.writeRestriction(uri, taxonomy.uris[filler], taxonomy.ontIDs[filler], taxonomy.restrictionTypes[r]);
+                    changed = true;
                 }
             }
-        });
+        }
 
-        return executor;
-    }
+        Set<String> previousEquivalentClasses = referenceKeys(previous.equivalentClasses);
+        Taxonomy.Edges equivalentClasses = taxonomy.equivalentClasses;
+        for (int i = equivalentClasses.start(id); i < equivalentClasses.end(id); i++) {
+            int ec = equivalentClasses.targets[i];
+            if (!previousEquivalentClasses.remove(referenceKey(taxonomy.uris[ec], null))) {
+                this.writeEquivalentClass(uri, taxonomy.uris[ec], taxonomy.ontIDs[ec]);
+                changed = true;
+            }
+        }
 
-    private void closeTransactionAliveKeeper (ExecutorService executor, boolean verbose) {
-        try {
-            executor.shutdown();
-            executor.awaitTermination(5, TimeUnit.SECONDS);
+        // What's left of the previous relationships doesn't exist anymore
+        ClassRecord removed = new ClassRecord(previous.uri, previous.ontID);
+        for (ClassRecord.Reference reference: previous.superClasses) {
+            if (previousSuperClasses.contains(referenceKey(reference))) {
+                removed.superClasses.add(reference);
+            }
         }
-        catch (InterruptedException e) {
-            if (verbose) {
-                System.out.println("Alive keeper interrupted");
+        for (ClassRecord.Reference reference: previous.restrictions) {
+            if (previousRestrictions.contains(referenceKey(reference))) {
+                removed.restrictions.add(reference);
             }
         }
-        finally {
-            if (verbose) {
-                System.out.println("Force shutdown alive keeper");
+        for (ClassRecord.Reference reference: previous.equivalentClasses) {
+            if (previousEquivalentClasses.contains(referenceKey(reference))) {
+                removed.equivalentClasses.add(reference);
             }
-            executor.shutdownNow();
         }
+
+        return this.deleteRelationships(removed) || changed;
     }
 
-    private static void checkForError (HttpResponse<JsonNode> response) throws Exception {
-        JSONObject jsonResponse = response.getBody().getObject();
-        JSONArray errors = (JSONArray) jsonResponse.get("errors");
-        if (errors.length() > 0) {
-            JSONObject error = (JSONObject) errors.get(0);
-            String errorMsg = error.get("code").toString() + ": \"" + error.get("message").toString() + "\"";
-            throw new Exception(errorMsg);
+    /**
+     * Deletes all relationships of a class which have been written for it.
+     * The class node itself is kept since other ontologies might refer to it.
+     *
+     * @return `true` if anything has been deleted.
+     */
+    private boolean deleteRelationships (ClassRecord record) throws Exception {
+        for (ClassRecord.Reference superClass: record.superClasses) {
+            this.sink.deleteRelationship(
+                CLASS_NODE_LABEL,
+                record.uri,
+                CLASS_NODE_LABEL,
+                superClass.uri,
+                "RDFS:subClassOf"
+            );
         }
-    }
 
-    private void createNode (String classLabel, String classOntID, String classUri) {
-        // Uniqueness for Class nodes needs to be defined before
-        // Look: cypher/constraints.cql
-        // Example: cypher/createClass.cql
-        String cql = "MERGE (n:`" + classLabel + "` {uri:{classUri}});";
-        JsonObject json = Json.createObjectBuilder()
-            .add("statements", Json.createArrayBuilder()
-                .add(Json.createObjectBuilder()
-                    .add("statement", cql)
-                    .add("parameters", Json.createObjectBuilder()
-                        .add("classUri", classUri)
-                    )
-                )
-            )
-            .build();
-        queryNeo4J(json, this.server_root_url + TRANSACTION_ENDPOINT + this.transaction, "Error creating a node");
-        setLabel(classLabel, "uri", classUri, this.ontology_acronym);
-        setProperty(classLabel, classUri, "name", classOntID);
+        for (ClassRecord.Reference restriction: record.restrictions) {
+            this.sink.deleteRelationship(
+                CLASS_NODE_LABEL,
+                record.uri,
+                CLASS_NODE_LABEL,
+                restriction.uri,
+                restriction.relationship
+            );
+        }
+
+        // Same direction as `writeEquivalentClass`
+        for (ClassRecord.Reference ec: record.equivalentClasses) {
+            this.sink.deleteRelationship(
+                CLASS_NODE_LABEL,
+                record.uri,
+                CLASS_NODE_LABEL,
+                ec.uri,
+                "OWL:equivalentClass"
+            );
+        }
+
+        return !record.superClasses.isEmpty() || !record.restrictions.isEmpty() || !record.equivalentClasses.isEmpty();
     }
 
-    private void setLabel (String classLabel, String key, String value, String newLabel) {
-        String cql = "MATCH (n:`" + classLabel + "` {" + key + ":{value}}) SET n :`" + newLabel + "`;";
-        JsonObject json = Json.createObjectBuilder()
-            .add("statements", Json.createArrayBuilder()
-                .add(Json.createObjectBuilder()
-                    .add("statement", cql)
-                    .add("parameters", Json.createObjectBuilder()
-                        .add("value", value)
-                    )
-                )
-            )
-            .build();
-        queryNeo4J(json, this.server_root_url + TRANSACTION_ENDPOINT + this.transaction, "Error creating a label");
+    private static String referenceKey (ClassRecord.Reference reference) {
+        return referenceKey(reference.uri, reference.relationship);
     }
 
-    private void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
-        // Example: cypher/createRelationship.cql
-        String cql = "MATCH (src:`" + srcLabel + "` {uri:{srcUri}}), (dest:`" + destLabel + "` {uri:{destUri}}) MERGE (src)-[:`" + relationship + "`]->(dest);";
-        JsonObject json = Json.createObjectBuilder()
-            .add("statements", Json.createArrayBuilder()
-                .add(Json.createObjectBuilder()
-                    .add("statement", cql)
-                    .add("parameters", Json.createObjectBuilder()
-                        .add("srcUri", srcUri)
-                        .add("destUri", destUri)
-                    )
-                )
-            )
-            .build();
-        queryNeo4J(json, this.server_root_url + TRANSACTION_ENDPOINT + this.transaction, "Error creating a relationship");
+    private static String referenceKey (String uri, String relationship) {
+        return relationship == null ? uri : uri + " " + relationship;
     }
 
-    private void setProperty (String classLabel, String classUri, String propertyName, String propertyValue) {
-        // Example: cypher/setProperty.cql
-        String cql = "MATCH (n:`" + classLabel + "` {uri:{classUri}}) SET n.`" + propertyName + "` = {propertyValue};";
-        JsonObject json = Json.createObjectBuilder()
-            .add("statements", Json.createArrayBuilder()
-                .add(Json.createObjectBuilder()
-                    .add("statement", cql)
-                    .add("parameters", Json.createObjectBuilder()
-                        .add("classUri", classUri)
-                        .add("propertyValue", propertyValue)
-                    )
-                )
-            )
-            .build();
-        queryNeo4J(json, this.server_root_url + TRANSACTION_ENDPOINT + this.transaction, "Error creating a node property");
+    private static Set<String> referenceKeys (List<ClassRecord.Reference> references) {
+        Set<String> keys = new HashSet<>();
+        for (ClassRecord.Reference reference: references) {
+            keys.add(referenceKey(reference));
+        }
+        return keys;
     }
 
-    private void queryNeo4J (JsonObject json, String url, String errorTitle) {
+    public static String extractUri (String classString) {
+        String classUri = classString;
+        int openingAngleBracketPos = classString.indexOf("<");
+        int closingAngleBracketPos = classString.lastIndexOf(">");
         try {
-            HttpResponse<JsonNode> response = Unirest.post(url)
-                .body(json.toString())
-                .asJson();
-
-            if (this.verbose_output) {
-                System.out.println("CQL: " + json);
-                this.cqlLogger.info(json.toString());
+            if (openingAngleBracketPos >= 0 && closingAngleBracketPos >= 0) {
+                classUri = classString.substring(
+                    classString.indexOf("<") + 1,
+                    classString.lastIndexOf(">")
+                );
             }
-
-            checkForError(response);
         } catch (Exception e) {
-            print_error(ANSI_RESET_DIM + errorTitle);
-            print_error("CQL: " + json);
+            print_error("Couldn't extract URI of '" + classString + "'");
             print_error(e.getMessage());
             System.exit(1);
         }
+        return classUri;
+    }
+
+    public String getOntID (String classUri) {
+        return getOntID(classUri, this.ontUri, this.ontology_acronym);
+    }
+
+    /**
+     * @param ontologyUri URI of the imported ontology. Classes defined by it get its acronym as ID space.
+     */
+    static String getOntID (String classUri, String ontologyUri, String ontologyAcronym) {
+        String idSpace = "";
+        String classOntID = classUri;
+        // First extract the substring after the last slash to avoid possible
+        // conflicts
+        if (classOntID.contains("/")) {
+            int lastSlash = classOntID.lastIndexOf("/");
+            if (lastSlash >= 0) {
+                String tmp = classOntID.substring(lastSlash);
+                if (tmp.length() == 1) {
+                    tmp = classOntID.substring(0, lastSlash);
+                    lastSlash = tmp.lastIndexOf("/");
+                    if (lastSlash >= 0) {
+                        tmp = tmp.substring(lastSlash);
+                    }
+                }
+                if (tmp.length() > 1) {
+                    classOntID = tmp.substring(1);
+                }
+            }
+        }
+        // OWL IDs start with `#` so we extract everything after that.
+        int hashPos = classOntID.indexOf("#");
+        if (hashPos >= 0 && hashPos + 1 != classOntID.length()) {
+            classOntID = classOntID.substring(
+                hashPos + 1
+            );
+            if (ontologyUri.equals(classUri.substring(0, classUri.indexOf("#")))) {
+                idSpace = ontologyAcronym;
+            }
+        }
+        // If the string contains an underscore than it is most likely an OBO ontology converted to OWL. The prefix is
+        // different in this case. We will use the ID space of OBO.
+        // For more details: http://www.obofoundry.org/id-policy.shtml
+        int underscorePos = classOntID.indexOf("_");
+        if (underscorePos >= 0 && underscorePos + 1 != classOntID.length()) {
+            if (idSpace.length() == 0) {
+                idSpace = classOntID.substring(
+                    0,
+                    underscorePos
+                );
+            }
+            classOntID = classOntID.substring(underscorePos + 1);
+        }
+        if (idSpace.length() > 0) {
+            idSpace = idSpace.toUpperCase() + ":";
+        }
+        return idSpace + classOntID;
+    }
+
+    /**
+     * Picks the sink by the plan and export options and the scheme of the
+     * server URL.
+     */
+    private GraphSink createSink () {
+        if (this.plan) {
+            return new PlanSink(
+                this.ontology_acronym,
+                CLASS_NODE_LABEL,
+                this.write_options,
+                BoltGraphSink.isBoltUrl(this.server_root_url),
+                this.metrics
+            );
+        }
+        if (this.path_to_csv_export != null) {
+            return new CsvExporter(this.path_to_csv_export, this.ontology_acronym, this.exported_nodes, this.verbose_output);
+        }
+        if (BoltGraphSink.isBoltUrl(this.server_root_url)) {
+            return new BoltGraphSink(
+                this.server_root_url,
+                this.neo4j_user,
+                this.neo4j_password,
+                this.ontology_acronym,
+                CLASS_NODE_LABEL,
+                this.write_options,
+                this.verbose_output,
+                this.cqlLogger,
+                this.metrics
+            );
+        }
+        return new RestGraphSink(
+            this.server_root_url,
+            this.http_transport,
+            this.ontology_acronym,
+            CLASS_NODE_LABEL,
+            this.write_options,
+            this.verbose_output,
+            this.cqlLogger,
+            this.metrics
+        );
+    }
+
+    /**
+     * Creates a node unless it has been created during this import already,
+     * e.g. when a class is referenced by several of its subclasses.
+     */
+    private void createNode (String classLabel, String classOntID, String classUri) throws Exception {
+        if (this.emitted.addNode(classLabel, classUri)) {
+            this.sink.createNode(classLabel, classUri, classOntID);
+        }
+    }
+
+    private void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) throws Exception {
+        if (this.emitted.addRelationship(srcUri, relationship, destUri)) {
+            this.sink.createRelationship(srcLabel, srcUri, destLabel, destUri, relationship);
+        }
+    }
+
+    private void setProperty (String classLabel, String classUri, String propertyName, String propertyValue) throws Exception {
+        this.sink.setProperty(classLabel, classUri, propertyName, propertyValue);
     }
 
     /**
@@ -1068,7 +1766,7 @@ public class Owl2Neo4J {
             .numberOfArgs(1)
             .type(String.class)
             .longOpt("server")
-            .desc("Neo4J server root URL [Default: http://localhost:7474]")
+            .desc("Neo4J server root URL, either http:// or bolt:// [Default: http://localhost:7474]")
             .build();
 
         Option user = Option.builder("u")
@@ -1108,6 +1806,262 @@ public class Owl2Neo4J {
             .desc("Path to JSON file")
             .build();
 
+        Option statementsPerRequest = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("request-size")
+            .desc("Max. number of Cypher statements per request [Default: " + StatementBuffer.DEFAULT_MAX_STATEMENTS + "]")
+            .build();
+
+        Option bytesPerRequest = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("request-bytes")
+            .desc("Max. payload size per request in bytes [Default: " + StatementBuffer.DEFAULT_MAX_BYTES + "]")
+            .build();
+
+        Option requestsInFlight = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("in-flight")
+            .desc("Max. number of requests sent without waiting for their response. Each request is committed on its own. [Default: 0, i.e. everything is written in one transaction]")
+            .build();
+
+        Option targetLatency = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("target-latency")
+            .desc("Adapt the number of statements per request, starting at `--request-size`, to keep requests under this many milliseconds [Default: 0, i.e. fixed]")
+            .build();
+
+        Option retries = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("retries")
+            .desc("Max. number of retries of a request failing with a timeout or a transient Neo4J error, e.g. a deadlock [Default: 0]")
+            .build();
+
+        Option gzipRequests = Option.builder()
+            .longOpt("gzip")
+            .desc("Gzip requests. The server, or a proxy in front of it, has to accept gzipped requests.")
+            .build();
+
+        Option maxConnections = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("max-connections")
+            .desc("Max. number of pooled HTTP connections [Default: " + HttpOptions.DEFAULT_MAX_CONNECTIONS + "]")
+            .build();
+
+        Option connectionsPerRoute = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("connections-per-route")
+            .desc("Max. number of HTTP connections to the Neo4J server [Default: " + HttpOptions.DEFAULT_CONNECTIONS_PER_ROUTE + "]")
+            .build();
+
+        Option connectTimeout = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("connect-timeout")
+            .desc("Milliseconds until connecting to Neo4J times out [Default: " + HttpOptions.DEFAULT_CONNECT_TIMEOUT + "]")
+            .build();
+
+        Option socketTimeout = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("socket-timeout")
+            .desc("Milliseconds until waiting for a response times out [Default: " + HttpOptions.DEFAULT_SOCKET_TIMEOUT + "]")
+            .build();
+
+        Option keepAlive = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("keep-alive")
+            .desc("Seconds an idle HTTP connection is kept for reuse [Default: " + HttpOptions.DEFAULT_KEEP_ALIVE + ", 0 opens a connection per request]")
+            .build();
+
+        Option noTcpNoDelay = Option.builder()
+            .longOpt("no-tcp-nodelay")
+            .desc("Let the OS delay small requests to combine them (Nagle's algorithm)")
+            .build();
+
+        Option statementsPerCommit = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("commit-every")
+            .desc("Commit and start a new transaction after this many statements [Default: 0, i.e. commit once at the end, or 10000 with --retries]")
+            .build();
+
+        Option secondsPerCommit = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("commit-interval")
+            .desc("Commit and start a new transaction after this many seconds [Default: 0, i.e. commit once at the end]")
+            .build();
+
+        Option bulk = Option.builder()
+            .longOpt("bulk")
+            .desc("Write classes and relationships in chunks using UNWIND statements")
+            .build();
+
+        Option rowsPerChunk = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("chunk-size")
+            .desc("Number of nodes and relationships per chunk in bulk mode [Default: " + BulkWriter.DEFAULT_CHUNK_SIZE + "]")
+            .build();
+
+        Option exportCsv = Option.builder()
+            .argName("Path")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("export-csv")
+            .desc("Export CSV files for `neo4j-admin import` into this directory instead of writing to Neo4J")
+            .build();
+
+        Option extractionThreads = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("threads")
+            .desc("Number of threads extracting the class hierarchy [Default: number of cores]")
+            .build();
+
+        Option batchWorkers = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("workers")
+            .desc("Number of ontologies of a batch imported at the same time [Default: 1]")
+            .build();
+
+        Option extractionQueueSize = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("queue-size")
+            .desc("Max. number of extracted classes waiting to be collected [Default: " + ExtractionPipeline.DEFAULT_QUEUE_SIZE + "]")
+            .build();
+
+        Option reasoner = Option.builder("r")
+            .argName("String")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("reasoner")
+            .desc("Reasoner computing the class hierarchy: " + ReasonerStrategy.options() + " [Default: " + ReasonerStrategy.DEFAULT.getOption() + "]")
+            .build();
+
+        Option cache = Option.builder()
+            .argName("Path")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("cache")
+            .desc("Cache the classified taxonomy in this directory and reuse it as long as the ontology doesn't change")
+            .build();
+
+        Option diff = Option.builder()
+            .argName("Path")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("diff")
+            .desc("Keep a snapshot of every import in this directory and only write what changed since the previous import")
+            .build();
+
+        Option checkpoint = Option.builder()
+            .argName("Path")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("checkpoint-file")
+            .desc("Record the progress of the import in this file")
+            .build();
+
+        Option checkpointInterval = Option.builder()
+            .argName("Integer")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(Number.class)
+            .longOpt("checkpoint-every")
+            .desc("Commit and record the progress after this many classes [Default: " + Checkpoint.DEFAULT_INTERVAL + "]")
+            .build();
+
+        Option resume = Option.builder()
+            .longOpt("resume")
+            .desc("Continue the import recorded in the checkpoint file")
+            .build();
+
+        Option metrics = Option.builder()
+            .argName("Path")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("metrics")
+            .desc("Write the metrics of every ontology, and of the batch, as JSON and in Prometheus' text format to this directory")
+            .build();
+
+        Option nestedRestrictions = Option.builder()
+            .longOpt("nested-restrictions")
+            .desc("Also import existential restrictions of `--eqp` properties nested in intersections, e.g. of `A subClassOf (B and part_of some C)`")
+            .build();
+
+        Option expandEquivalences = Option.builder()
+            .longOpt("expand-equivalences")
+            .desc("Write the superclasses of every member of a set of equivalent classes and relate every member to every other, instead of attaching them to one member of the set")
+            .build();
+
+        Option labelLanguages = Option.builder()
+            .argName("Languages")
+            .hasArg()
+            .numberOfArgs(1)
+            .type(String.class)
+            .longOpt("label-lang")
+            .desc("Comma-separated languages of labels in order of preference, e.g. en,de [Default: untagged, then en]")
+            .build();
+
+        Option plan = Option.builder()
+            .longOpt("plan")
+            .desc("Load and extract the ontology and report what would be written, and in how many requests, without connecting to Neo4J")
+            .build();
+
+        Option streamOwl = Option.builder()
+            .longOpt("stream")
+            .desc("Read the asserted class hierarchy straight from the RDF/XML file in a single pass instead of loading and classifying the ontology")
+            .build();
+
         Option includeOwlImports = Option.builder("i")
             .longOpt("incl-imports")
             .desc("Include import closure")
@@ -1131,6 +2085,38 @@ public class Owl2Neo4J {
         all_options.addOption(batch);
         all_options.addOption(includeOwlImports);
         all_options.addOption(noLocalOntologies);
+        all_options.addOption(statementsPerRequest);
+        all_options.addOption(bytesPerRequest);
+        all_options.addOption(requestsInFlight);
+        all_options.addOption(targetLatency);
+        all_options.addOption(retries);
+        all_options.addOption(gzipRequests);
+        all_options.addOption(maxConnections);
+        all_options.addOption(connectionsPerRoute);
+        all_options.addOption(connectTimeout);
+        all_options.addOption(socketTimeout);
+        all_options.addOption(keepAlive);
+        all_options.addOption(noTcpNoDelay);
+        all_options.addOption(statementsPerCommit);
+        all_options.addOption(secondsPerCommit);
+        all_options.addOption(bulk);
+        all_options.addOption(rowsPerChunk);
+        all_options.addOption(exportCsv);
+        all_options.addOption(extractionThreads);
+        all_options.addOption(batchWorkers);
+        all_options.addOption(reasoner);
+        all_options.addOption(streamOwl);
+        all_options.addOption(plan);
+        all_options.addOption(labelLanguages);
+        all_options.addOption(nestedRestrictions);
+        all_options.addOption(expandEquivalences);
+        all_options.addOption(cache);
+        all_options.addOption(diff);
+        all_options.addOption(checkpoint);
+        all_options.addOption(checkpointInterval);
+        all_options.addOption(resume);
+        all_options.addOption(metrics);
+        all_options.addOption(extractionQueueSize);
 
         meta_options.addOption(help);
         meta_options.addOption(version);
@@ -1145,9 +2131,72 @@ public class Owl2Neo4J {
         call_options.addOption(eqp);
         call_options.addOption(includeOwlImports);
         call_options.addOption(noLocalOntologies);
+        call_options.addOption(statementsPerRequest);
+        call_options.addOption(bytesPerRequest);
+        call_options.addOption(requestsInFlight);
+        call_options.addOption(targetLatency);
+        call_options.addOption(retries);
+        call_options.addOption(gzipRequests);
+        call_options.addOption(maxConnections);
+        call_options.addOption(connectionsPerRoute);
+        call_options.addOption(connectTimeout);
+        call_options.addOption(socketTimeout);
+        call_options.addOption(keepAlive);
+        call_options.addOption(noTcpNoDelay);
+        call_options.addOption(statementsPerCommit);
+        call_options.addOption(secondsPerCommit);
+        call_options.addOption(bulk);
+        call_options.addOption(rowsPerChunk);
+        call_options.addOption(exportCsv);
+        call_options.addOption(extractionThreads);
+        call_options.addOption(reasoner);
+        call_options.addOption(streamOwl);
+        call_options.addOption(plan);
+        call_options.addOption(labelLanguages);
+        call_options.addOption(nestedRestrictions);
+        call_options.addOption(expandEquivalences);
+        call_options.addOption(cache);
+        call_options.addOption(diff);
+        call_options.addOption(checkpoint);
+        call_options.addOption(checkpointInterval);
+        call_options.addOption(resume);
+        call_options.addOption(metrics);
+        call_options.addOption(extractionQueueSize);
 
         batch_options.addOption(batch);
         batch_options.addOption(verbosity);
+        batch_options.addOption(statementsPerRequest);
+        batch_options.addOption(bytesPerRequest);
+        batch_options.addOption(requestsInFlight);
+        batch_options.addOption(targetLatency);
+        batch_options.addOption(retries);
+        batch_options.addOption(gzipRequests);
+        batch_options.addOption(maxConnections);
+        batch_options.addOption(connectionsPerRoute);
+        batch_options.addOption(connectTimeout);
+        batch_options.addOption(socketTimeout);
+        batch_options.addOption(keepAlive);
+        batch_options.addOption(noTcpNoDelay);
+        batch_options.addOption(statementsPerCommit);
+        batch_options.addOption(secondsPerCommit);
+        batch_options.addOption(bulk);
+        batch_options.addOption(rowsPerChunk);
+        batch_options.addOption(exportCsv);
+        batch_options.addOption(extractionThreads);
+        batch_options.addOption(batchWorkers);
+        batch_options.addOption(reasoner);
+        batch_options.addOption(streamOwl);
+        batch_options.addOption(plan);
+        batch_options.addOption(labelLanguages);
+        batch_options.addOption(nestedRestrictions);
+        batch_options.addOption(expandEquivalences);
+        batch_options.addOption(cache);
+        batch_options.addOption(diff);
+        batch_options.addOption(checkpoint);
+        batch_options.addOption(checkpointInterval);
+        batch_options.addOption(resume);
+        batch_options.addOption(metrics);
+        batch_options.addOption(extractionQueueSize);
 
         try {
             // Parse only for meta options, e.g. `-h` and `-v`
@@ -1181,6 +2230,14 @@ public class Owl2Neo4J {
             if (cl.hasOption("v")) {
                 this.verbose_output = true;
             }
+            this.parseImportOptions(cl);
+            if (cl.hasOption("workers")) {
+                this.batch_workers = Math.max(1, ((Number) cl.getParsedOptionValue("workers")).intValue());
+                // Share the cores between the ontologies imported at the same time
+                if (!cl.hasOption("threads")) {
+                    this.extraction_threads = Math.max(1, this.extraction_threads / this.batch_workers);
+                }
+            }
             batchImport = true;
         }  catch (ParseException e) {
             batchImport = false;
@@ -1196,17 +2253,24 @@ public class Owl2Neo4J {
                 this.include_import_closure = cl.hasOption("i");
                 this.no_local_owl_files = cl.hasOption("l");
                 this.server_root_url = cl.getOptionValue("s", "http://localhost:7474");
+                this.neo4j_user = cl.getOptionValue("u");
+                this.neo4j_password = cl.getOptionValue("p");
                 this.neo4j_authentication_header = "Basic: " + Base64.encodeBase64String((cl.getOptionValue("u") + ":" + cl.getOptionValue("p")).getBytes());
 
                 if (cl.hasOption("eqp")) {
                     this.eqps = new HashSet<>(Arrays.asList(cl.getOptionValues("eqp")));
                 }
 
+                this.parseImportOptions(cl);
+                if (this.stream_owl && this.include_import_closure) {
+                    throw new ParseException("`--stream` doesn't follow imports, so it can't be combined with `-i`.");
+                }
+
                 if (cl.hasOption("v")) {
                     this.verbose_output = true;
                 }
 
-                if (!this.path_to_owl.startsWith("/") || !this.path_to_owl.startsWith("./")) {
+                if (!this.path_to_owl.startsWith("/") && !this.path_to_owl.startsWith("./")) {
                     this.path_to_owl = "./" + this.path_to_owl;
                 }
             } catch (ParseException e) {
@@ -1219,6 +2283,124 @@ public class Owl2Neo4J {
         }
     }
 
+    /**
+     * Reads the options shared by single and batch imports, i.e. how the
+     * hierarchy is extracted and how and where statements are written.
+     */
+    private void parseImportOptions(CommandLine cl) throws ParseException
+    {
+        if (cl.hasOption("reasoner")) {
+            try {
+                this.default_reasoner_strategy = ReasonerStrategy.fromOption(cl.getOptionValue("reasoner"));
+            } catch (Exception e) {
+                throw new ParseException(e.getMessage());
+            }
+            this.reasoner_strategy = this.default_reasoner_strategy;
+        }
+        this.stream_owl = cl.hasOption("stream");
+        this.nested_restrictions = cl.hasOption("nested-restrictions");
+        this.expand_equivalences = cl.hasOption("expand-equivalences");
+        if (cl.hasOption("label-lang")) {
+            this.label_languages = new ArrayList<>();
+            for (String language: cl.getOptionValue("label-lang").split(",")) {
+                if (StringUtils.isNotBlank(language)) {
+                    this.label_languages.add(language.trim());
+                }
+            }
+        }
+        if (this.stream_owl && cl.hasOption("reasoner")) {
+            throw new ParseException("`--stream` doesn't classify, so it can't be combined with `--reasoner`.");
+        }
+        if (cl.hasOption("request-size")) {
+            this.write_options.statementsPerRequest = ((Number) cl.getParsedOptionValue("request-size")).intValue();
+        }
+        if (cl.hasOption("request-bytes")) {
+            this.write_options.bytesPerRequest = ((Number) cl.getParsedOptionValue("request-bytes")).intValue();
+        }
+        if (cl.hasOption("in-flight")) {
+            this.write_options.requestsInFlight = ((Number) cl.getParsedOptionValue("in-flight")).intValue();
+        }
+        if (cl.hasOption("target-latency")) {
+            this.write_options.targetLatency = ((Number) cl.getParsedOptionValue("target-latency")).intValue();
+        }
+        if (cl.hasOption("retries")) {
+            this.write_options.retries = ((Number) cl.getParsedOptionValue("retries")).intValue();
+        }
+        this.write_options.gzipRequests = cl.hasOption("gzip");
+        if (cl.hasOption("max-connections")) {
+            this.http_options.maxConnections = ((Number) cl.getParsedOptionValue("max-connections")).intValue();
+        }
+        if (cl.hasOption("connections-per-route")) {
+            this.http_options.connectionsPerRoute = ((Number) cl.getParsedOptionValue("connections-per-route")).intValue();
+        }
+        if (cl.hasOption("connect-timeout")) {
+            this.http_options.connectTimeout = ((Number) cl.getParsedOptionValue("connect-timeout")).intValue();
+        }
+        if (cl.hasOption("socket-timeout")) {
+            this.http_options.socketTimeout = ((Number) cl.getParsedOptionValue("socket-timeout")).intValue();
+        }
+        if (cl.hasOption("keep-alive")) {
+            this.http_options.keepAlive = ((Number) cl.getParsedOptionValue("keep-alive")).intValue();
+        }
+        this.http_options.tcpNoDelay = !cl.hasOption("no-tcp-nodelay");
+        if (cl.hasOption("commit-every")) {
+            this.write_options.statementsPerCommit = ((Number) cl.getParsedOptionValue("commit-every")).intValue();
+        }
+        if (cl.hasOption("commit-interval")) {
+            this.write_options.secondsPerCommit = ((Number) cl.getParsedOptionValue("commit-interval")).intValue();
+        }
+        this.write_options.bulk = cl.hasOption("bulk");
+        if (cl.hasOption("chunk-size")) {
+            this.write_options.rowsPerChunk = ((Number) cl.getParsedOptionValue("chunk-size")).intValue();
+        }
+        this.path_to_csv_export = cl.getOptionValue("export-csv");
+        this.plan = cl.hasOption("plan");
+        if (this.plan && this.path_to_csv_export != null) {
+            throw new ParseException("`--plan` can't be combined with `--export-csv`");
+        }
+        if (cl.hasOption("cache")) {
+            this.taxonomy_cache = new TaxonomyCache(new File(cl.getOptionValue("cache")));
+        }
+        if (cl.hasOption("diff")) {
+            if (this.path_to_csv_export != null) {
+                throw new ParseException("`--diff` can't be combined with `--export-csv`");
+            }
+            this.snapshot_store = new TaxonomyCache(new File(cl.getOptionValue("diff")));
+        }
+        if (cl.hasOption("metrics")) {
+            this.metrics_directory = new File(cl.getOptionValue("metrics"));
+        }
+        if (cl.hasOption("checkpoint-every")) {
+            this.checkpoint_interval = Math.max(1, ((Number) cl.getParsedOptionValue("checkpoint-every")).intValue());
+        }
+        if (cl.hasOption("checkpoint-file")) {
+            if (this.path_to_csv_export != null) {
+                throw new ParseException("`--checkpoint-file` can't be combined with `--export-csv`");
+            }
+            if (this.plan) {
+                throw new ParseException("`--checkpoint-file` can't be combined with `--plan`");
+            }
+            File checkpointFile = new File(cl.getOptionValue("checkpoint-file"));
+            if (cl.hasOption("resume")) {
+                try {
+                    this.checkpoint = Checkpoint.load(checkpointFile);
+                } catch (Exception e) {
+                    throw new ParseException("Couldn't read checkpoint: " + e.getMessage());
+                }
+            } else {
+                this.checkpoint = new Checkpoint(checkpointFile);
+            }
+        } else if (cl.hasOption("resume")) {
+            throw new ParseException("`--resume` requires `--checkpoint-file`");
+        }
+        if (cl.hasOption("threads")) {
+            this.extraction_threads = ((Number) cl.getParsedOptionValue("threads")).intValue();
+        }
+        if (cl.hasOption("queue-size")) {
+            this.extraction_queue_size = ((Number) cl.getParsedOptionValue("queue-size")).intValue();
+        }
+    }
+
     /**
      * Prints a usage message to the console.
      */
@@ -1230,6 +2412,31 @@ public class Owl2Neo4J {
         formatter.printHelp("java -jar owl2neo4j.jar", header, options, footer, true);
     }
 
+    /**
+     * Starts measuring the peak heap usage from the current usage on.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return Sum of the peak usage of all heap memory pools since the last
+     *   reset. The pools peak at different times, so this is an upper bound.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
     /**
      * Prints error message in red.
      */
@@ -0,0 +1,89 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a sink should commit its transaction and start a new one so
+ * that Neo4J doesn't have to hold the state of the whole import in a single
+ * transaction. All statements are idempotent `MERGE` or `SET` statements, so
+ * an import which failed after some commits can simply be run again.
+ */
+public class PeriodicCommit {
+
+    private final int statements;
+    private final int seconds;
+    private final boolean verbose;
+
+    private int uncommitted = 0;
+    private long started = System.nanoTime();
+
+    // Commit latency
+    private int chunks = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /**
+     * @param statements Commit after this many statements. `0` disables the limit.
+     * @param seconds Commit after this many seconds. `0` disables the limit.
+     */
+    public PeriodicCommit (int statements, int seconds, boolean verbose) {
+        this.statements = Math.max(0, statements);
+        this.seconds = Math.max(0, seconds);
+        this.verbose = verbose;
+    }
+
+    public boolean isEnabled () {
+        return this.statements > 0 || this.seconds > 0;
+    }
+
+    public void sent (int statements) {
+        this.uncommitted += statements;
+    }
+
+    public boolean isDue () {
+        if (!this.isEnabled() || this.uncommitted == 0) {
+            return false;
+        }
+        if (this.statements > 0 && this.uncommitted >= this.statements) {
+            return true;
+        }
+        return this.seconds > 0 && System.nanoTime() - this.started >= TimeUnit.SECONDS.toNanos(this.seconds);
+    }
+
+    /**
+     * Records a commit and starts the next chunk.
+     *
+     * @param nanos Time the commit took.
+     */
+    public void committed (long nanos) {
+        if (this.uncommitted == 0) {
+            // Committing an empty transaction doesn't make up a chunk
+            this.started = System.nanoTime();
+            return;
+        }
+
+        this.chunks++;
+        this.totalNanos += nanos;
+        this.maxNanos = Math.max(this.maxNanos, nanos);
+
+        if (this.verbose) {
+            System.out.println(
+                "Committed chunk " + this.chunks + " with " + this.uncommitted + " statements in " +
+                TimeUnit.NANOSECONDS.toMillis(nanos) + " ms"
+            );
+        }
+
+        this.uncommitted = 0;
+        this.started = System.nanoTime();
+    }
+
+    public void printSummary () {
+        if (this.verbose && this.chunks > 0) {
+            System.out.println(
+                "Committed " + this.chunks + " chunks. Commit latency: " +
+                TimeUnit.NANOSECONDS.toMillis(this.totalNanos / this.chunks) + " ms on average, " +
+                TimeUnit.NANOSECONDS.toMillis(this.maxNanos) + " ms max"
+            );
+        }
+    }
+}
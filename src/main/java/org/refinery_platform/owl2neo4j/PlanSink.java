@@ -0,0 +1,302 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes nothing but counts what an import would write: nodes by label,
+ * properties by name and relationships by type, as well as the statements,
+ * requests and payload bytes of the selected write strategy.
+ *
+ * Statements are encoded and batched exactly like they would be sent to the
+ * HTTP endpoint, so request counts and payload sizes are exact for it. For
+ * Bolt only the number of statements limits a batch and payload sizes are
+ * those of the equivalent JSON. Commits after a number of seconds can't be
+ * planned and are ignored.
+ */
+public class PlanSink extends CypherGraphSink {
+
+    private final String bulkNodeLabel;
+    private final WriteOptions options;
+    private final boolean bolt;
+    private final Metrics metrics;
+
+    private final int statementsPerCommit;
+    private final PeriodicCommit periodicCommit;
+
+    // Nodes by label, properties by name and relationships by type
+    private final Map<String, Long> labels = new TreeMap<>();
+    private final Map<String, Long> properties = new TreeMap<>();
+    private final Map<String, Long> relationships = new TreeMap<>();
+    private long nodes = 0;
+    private long removedProperties = 0;
+    private long deletedRelationships = 0;
+
+    // Requests with statements and their payload
+    private long statements = 0;
+    private long requests = 0;
+    private long bytes = 0;
+    private long compressedBytes = 0;
+    // Requests beginning or committing a transaction and the number of transactions
+    private long transactionRequests = 0;
+    private long transactions = 0;
+
+    public PlanSink (String ontologyLabel, String bulkNodeLabel, WriteOptions options, boolean bolt, Metrics metrics) {
+        super(ontologyLabel);
+        this.bulkNodeLabel = bulkNodeLabel;
+        this.options = options;
+        this.bolt = bolt;
+        this.metrics = metrics;
+        this.statementsPerCommit = bolt ? options.statementsPerCommit : options.httpStatementsPerCommit();
+        this.periodicCommit = new PeriodicCommit(this.statementsPerCommit, 0, false);
+    }
+
+    @Override
+    public void open () {
+        StatementBuffer statementBuffer = new StatementBuffer(
+            null,
+            null,
+            this.options.statementsPerRequest,
+            this.bolt ? Integer.MAX_VALUE : this.options.bytesPerRequest,
+            false,
+            false,
+            null,
+            this.metrics
+        ) {
+            @Override
+            protected void send (JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+                try {
+                    sent(payload, offsets.size());
+                } finally {
+                    this.buffers.release(payload);
+                }
+            }
+        };
+
+        BulkWriter bulkWriter = null;
+        if (this.options.bulk) {
+            bulkWriter = new BulkWriter(
+                statementBuffer,
+                this.bulkNodeLabel,
+                this.ontologyLabel,
+                this.options.rowsPerChunk
+            );
+        }
+
+        this.setWriters(statementBuffer, bulkWriter);
+        if (!this.isAsync()) {
+            this.begin();
+        }
+    }
+
+    @Override
+    public void createNode (String nodeLabel, String uri, String name) {
+        this.nodes++;
+        increment(this.labels, nodeLabel);
+        increment(this.labels, this.ontologyLabel);
+        if (this.options.bulk && nodeLabel.equals(this.bulkNodeLabel)) {
+            // Otherwise the name is set via `setProperty`
+            increment(this.properties, "name");
+        }
+        super.createNode(nodeLabel, uri, name);
+    }
+
+    @Override
+    public void setProperty (String nodeLabel, String uri, String propertyName, String propertyValue) {
+        increment(this.properties, propertyName);
+        super.setProperty(nodeLabel, uri, propertyName, propertyValue);
+    }
+
+    @Override
+    public void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        increment(this.relationships, relationship);
+        super.createRelationship(srcLabel, srcUri, destLabel, destUri, relationship);
+    }
+
+    @Override
+    public void removeProperty (String nodeLabel, String uri, String propertyName) {
+        this.removedProperties++;
+        super.removeProperty(nodeLabel, uri, propertyName);
+    }
+
+    @Override
+    public void deleteRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        this.deletedRelationships++;
+        super.deleteRelationship(srcLabel, srcUri, destLabel, destUri, relationship);
+    }
+
+    @Override
+    public void commit () {
+        this.flush();
+        if (!this.isAsync()) {
+            this.commitTransaction();
+            this.begin();
+        }
+    }
+
+    @Override
+    public void close () {
+        this.flush();
+        if (!this.isAsync()) {
+            this.commitTransaction();
+        }
+    }
+
+    /**
+     * Counts a request instead of sending it.
+     */
+    private void sent (JsonBuffer payload, int statements) {
+        this.statements += statements;
+        this.requests++;
+        this.bytes += payload.size();
+        if (this.options.gzipRequests && !this.bolt) {
+            this.compressedBytes += gzippedSize(payload);
+        }
+        if (this.isAsync()) {
+            // Every request is committed on its own
+            this.transactions++;
+        } else {
+            this.periodicCommit.sent(statements);
+            if (this.periodicCommit.isDue()) {
+                this.commitTransaction();
+                this.begin();
+            }
+        }
+    }
+
+    private void begin () {
+        // Bolt begins a transaction without a request of its own
+        if (!this.bolt) {
+            this.transactionRequests++;
+        }
+    }
+
+    private void commitTransaction () {
+        this.transactionRequests++;
+        this.transactions++;
+        this.periodicCommit.committed(0);
+    }
+
+    private boolean isAsync () {
+        return !this.bolt && this.options.requestsInFlight > 0;
+    }
+
+    /**
+     * Prints what would have been written in one go, so that the lines of
+     * imports planned at the same time don't interleave.
+     */
+    public void printReport (String ontologyAcronym, long peakHeapBytes) {
+        StringBuilder report = new StringBuilder();
+        report.append("Plan for ").append(ontologyAcronym).append(" (").append(this.describeStrategy()).append("):\n");
+        report.append("  Nodes:          ").append(this.nodes).append(describe(this.labels)).append("\n");
+        report.append("  Properties:     ").append(sum(this.properties)).append(describe(this.properties)).append("\n");
+        report.append("  Relationships:  ").append(sum(this.relationships)).append(describe(this.relationships)).append("\n");
+        if (this.removedProperties > 0 || this.deletedRelationships > 0) {
+            report.append("  Removed:        ").append(this.removedProperties).append(" properties, ")
+                .append(this.deletedRelationships).append(" relationships\n");
+        }
+        report.append("  Statements:     ").append(this.statements).append("\n");
+        report.append("  Requests:       ").append(this.requests + this.transactionRequests);
+        if (this.transactionRequests > 0) {
+            report.append(" (").append(this.requests).append(" with statements, ")
+                .append(this.transactionRequests).append(" beginning or committing a transaction)");
+        }
+        report.append("\n");
+        report.append("  Transactions:   ").append(this.transactions).append("\n");
+        report.append("  Payload:        ").append(formatBytes(this.bytes));
+        if (this.bolt) {
+            report.append(" (as JSON)");
+        } else if (this.options.gzipRequests) {
+            report.append(" (").append(formatBytes(this.compressedBytes)).append(" gzipped)");
+        }
+        report.append("\n");
+        report.append("  Peak heap:      ").append(formatBytes(peakHeapBytes)).append(" (loading and extraction)");
+        System.out.println(report);
+    }
+
+    private String describeStrategy () {
+        StringBuilder strategy = new StringBuilder(this.bolt ? "Bolt" : "HTTP");
+        strategy.append(", ").append(this.options.statementsPerRequest).append(" statements");
+        if (!this.bolt) {
+            strategy.append(" or ").append(formatBytes(this.options.bytesPerRequest));
+        }
+        strategy.append(" per request");
+        if (this.options.bulk) {
+            strategy.append(", bulk");
+        }
+        if (this.isAsync()) {
+            strategy.append(", ").append(this.options.requestsInFlight).append(" in flight");
+        } else if (this.statementsPerCommit > 0) {
+            strategy.append(", commit every ").append(this.statementsPerCommit).append(" statements");
+        }
+        return strategy.toString();
+    }
+
+    private static void increment (Map<String, Long> counts, String key) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    private static long sum (Map<String, Long> counts) {
+        long sum = 0;
+        for (long count: counts.values()) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static String describe (Map<String, Long> counts) {
+        if (counts.isEmpty()) {
+            return "";
+        }
+        StringBuilder description = new StringBuilder(" (");
+        for (Map.Entry<String, Long> entry: counts.entrySet()) {
+            if (description.length() > 2) {
+                description.append(", ");
+            }
+            description.append(entry.getKey()).append(" ").append(entry.getValue());
+        }
+        return description.append(")").toString();
+    }
+
+    private static String formatBytes (long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static long gzippedSize (JsonBuffer payload) {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(counter, 8192)) {
+            out.write(payload.array(), 0, payload.size());
+        } catch (IOException e) {
+            // Counting doesn't fail
+        }
+        return counter.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write (int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write (byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+}
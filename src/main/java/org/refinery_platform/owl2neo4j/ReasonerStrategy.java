@@ -0,0 +1,99 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Reasoner */
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
+
+/**
+ * How the class hierarchy is computed.
+ */
+public enum ReasonerStrategy {
+
+    // Full OWL 2 DL reasoning
+    HERMIT("hermit", "HermiT"),
+    // Asserted hierarchy only, e.g. for ontologies which are already classified
+    STRUCTURAL("structural", "structural reasoner"),
+    // First OWL 2 EL reasoner found on the classpath
+    EL("el", "EL reasoner");
+
+    // OWL API reasoner factories of known EL reasoners. They are optional dependencies and therefore looked up at
+    // runtime.
+    private static final String[] EL_REASONER_FACTORIES = {
+        "org.semanticweb.elk.owlapi.ElkReasonerFactory",
+        "au.csiro.snorocket.owlapi.SnorocketReasonerFactory",
+        "de.tudresden.inf.lat.jcel.owlapi.main.JcelReasonerFactory"
+    };
+
+    public static ReasonerStrategy DEFAULT = HERMIT;
+
+    private final String option;
+    private final String description;
+
+    ReasonerStrategy (String option, String description) {
+        this.option = option;
+        this.description = description;
+    }
+
+    public String getOption () {
+        return this.option;
+    }
+
+    public String getDescription () {
+        return this.description;
+    }
+
+    /**
+     * HermiT and the structural reasoner only read their precomputed
+     * hierarchy when queried after classification. Nothing like that is known
+     * about third-party reasoners.
+     */
+    public boolean supportsConcurrentQueries () {
+        return this != EL;
+    }
+
+    public OWLReasonerFactory createFactory () throws Exception {
+        switch (this) {
+            case STRUCTURAL:
+                return new StructuralReasonerFactory();
+            case EL:
+                for (String className: EL_REASONER_FACTORIES) {
+                    Class<?> factoryClass;
+                    try {
+                        factoryClass = Class.forName(className);
+                    } catch (ClassNotFoundException e) {
+                        // Try the next one
+                        continue;
+                    }
+                    try {
+                        return (OWLReasonerFactory) factoryClass.getDeclaredConstructor().newInstance();
+                    } catch (ReflectiveOperationException e) {
+                        throw new Exception("Could not create the EL reasoner `" + className + "`: " + e.getMessage(), e);
+                    }
+                }
+                throw new Exception("No EL reasoner found on the classpath. Add e.g. ELK (org.semanticweb.elk:elk-owlapi).");
+            default:
+                return new Reasoner.ReasonerFactory();
+        }
+    }
+
+    public static ReasonerStrategy fromOption (String option) throws Exception {
+        for (ReasonerStrategy strategy: values()) {
+            if (strategy.option.equalsIgnoreCase(option)) {
+                return strategy;
+            }
+        }
+        throw new Exception("Unknown reasoner `" + option + "`. Use one of: " + options() + ".");
+    }
+
+    public static String options () {
+        StringBuilder options = new StringBuilder();
+        for (ReasonerStrategy strategy: values()) {
+            if (options.length() > 0) {
+                options.append(", ");
+            }
+            options.append(strategy.option);
+        }
+        return options.toString();
+    }
+}
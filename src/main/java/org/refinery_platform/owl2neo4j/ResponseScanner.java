@@ -0,0 +1,271 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a response of Neo4J's transactional endpoint without building it as
+ * a whole: results are only counted and skipped, and only the first error is
+ * decoded. Responses to write statements consist mostly of empty results, so
+ * nothing needs to be kept for a successful request.
+ */
+public class ResponseScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    // Number of elements of the `results` array
+    public int results = 0;
+    // Code and message of the first element of the `errors` array, if any
+    public String errorCode;
+    public String errorMessage;
+
+    private ResponseScanner (InputStream in) {
+        this.in = in;
+    }
+
+    public static ResponseScanner scan (InputStream in) throws IOException {
+        ResponseScanner scanner = new ResponseScanner(in);
+        scanner.scanResponse();
+        return scanner;
+    }
+
+    public boolean hasError () {
+        return this.errorCode != null || this.errorMessage != null;
+    }
+
+    private void scanResponse () throws IOException {
+        this.expect('{');
+        if (this.peekToken() == '}') {
+            return;
+        }
+        do {
+            String key = this.readString();
+            this.expect(':');
+            if ("results".equals(key) && this.peekToken() == '[') {
+                this.results = this.countArray();
+            } else if ("errors".equals(key) && this.peekToken() == '[') {
+                this.scanErrors();
+            } else {
+                this.skipValue();
+            }
+        } while (this.nextToken() == ',');
+    }
+
+    private int countArray () throws IOException {
+        this.expect('[');
+        if (this.peekToken() == ']') {
+            this.next();
+            return 0;
+        }
+        int count = 0;
+        do {
+            this.skipValue();
+            count++;
+        } while (this.nextToken() == ',');
+        return count;
+    }
+
+    private void scanErrors () throws IOException {
+        this.expect('[');
+        if (this.peekToken() == ']') {
+            this.next();
+            return;
+        }
+        boolean first = true;
+        do {
+            if (first && this.peekToken() == '{') {
+                this.scanError();
+            } else {
+                this.skipValue();
+            }
+            first = false;
+        } while (this.nextToken() == ',');
+    }
+
+    private void scanError () throws IOException {
+        this.expect('{');
+        if (this.peekToken() == '}') {
+            this.next();
+            return;
+        }
+        do {
+            String key = this.readString();
+            this.expect(':');
+            if ("code".equals(key) && this.peekToken() == '"') {
+                this.errorCode = this.readString();
+            } else if ("message".equals(key) && this.peekToken() == '"') {
+                this.errorMessage = this.readString();
+            } else {
+                this.skipValue();
+            }
+        } while (this.nextToken() == ',');
+    }
+
+    private void skipValue () throws IOException {
+        int depth = 0;
+        do {
+            int c = this.nextToken();
+            switch (c) {
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case '"':
+                    this.skipString();
+                    break;
+                case ',':
+                case ':':
+                    break;
+                default:
+                    // Numbers and literals
+                    while (isLiteral(this.peek())) {
+                        this.next();
+                    }
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString () throws IOException {
+        int c;
+        while ((c = this.next()) != '"') {
+            if (c == '\\') {
+                this.next();
+            }
+        }
+    }
+
+    private String readString () throws IOException {
+        this.expect('"');
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        // Characters outside the BMP are escaped as a pair of surrogates, which only make sense together
+        char highSurrogate = 0;
+        int c;
+        while ((c = this.next()) != '"') {
+            if (c == '\\' && this.peek() == 'u') {
+                this.next();
+                char[] hex = new char[4];
+                for (int i = 0; i < 4; i++) {
+                    hex[i] = (char) this.next();
+                }
+                char decoded;
+                try {
+                    decoded = (char) Integer.parseInt(new String(hex), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected response: invalid escape \\u" + new String(hex));
+                }
+                if (highSurrogate != 0 && Character.isLowSurrogate(decoded)) {
+                    writeUtf8(bytes, new String(new char[] {highSurrogate, decoded}));
+                    highSurrogate = 0;
+                    continue;
+                }
+                writeUtf8(bytes, highSurrogate);
+                highSurrogate = 0;
+                if (Character.isHighSurrogate(decoded)) {
+                    highSurrogate = decoded;
+                } else {
+                    writeUtf8(bytes, String.valueOf(decoded));
+                }
+                continue;
+            }
+            writeUtf8(bytes, highSurrogate);
+            highSurrogate = 0;
+            if (c != '\\') {
+                bytes.write(c);
+                continue;
+            }
+            c = this.next();
+            switch (c) {
+                case 'n': bytes.write('\n'); break;
+                case 'r': bytes.write('\r'); break;
+                case 't': bytes.write('\t'); break;
+                case 'b': bytes.write('\b'); break;
+                case 'f': bytes.write('\f'); break;
+                default:
+                    bytes.write(c);
+            }
+        }
+        writeUtf8(bytes, highSurrogate);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a pending high surrogate, if any. Unpaired surrogates are written
+     * as `?` like `String.getBytes()` does.
+     */
+    private static void writeUtf8 (ByteArrayOutputStream bytes, char c) {
+        if (c != 0) {
+            writeUtf8(bytes, String.valueOf(c));
+        }
+    }
+
+    private static void writeUtf8 (ByteArrayOutputStream bytes, String s) {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        bytes.write(utf8, 0, utf8.length);
+    }
+
+    private static boolean isLiteral (int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+    }
+
+    private void expect (char expected) throws IOException {
+        int c = this.nextToken();
+        if (c != expected) {
+            throw new IOException("Unexpected response: expected '" + expected + "' but found " + describe(c));
+        }
+    }
+
+    private static String describe (int c) {
+        return c == -1 ? "the end" : "'" + (char) c + "'";
+    }
+
+    /**
+     * @return The next character which isn't whitespace.
+     */
+    private int nextToken () throws IOException {
+        int c;
+        do {
+            c = this.next();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private int peekToken () throws IOException {
+        int c;
+        while ((c = this.peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            this.next();
+        }
+        return c;
+    }
+
+    private int next () throws IOException {
+        int c = this.peek();
+        if (c == -1) {
+            throw new IOException("Unexpected end of response");
+        }
+        this.position++;
+        return c;
+    }
+
+    private int peek () throws IOException {
+        if (this.position == this.limit) {
+            this.limit = this.in.read(this.buffer);
+            this.position = 0;
+            if (this.limit <= 0) {
+                this.limit = 0;
+                return -1;
+            }
+        }
+        return this.buffer[this.position] & 0xff;
+    }
+}
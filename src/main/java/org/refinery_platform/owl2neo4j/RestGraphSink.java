@@ -0,0 +1,373 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Jersey RESTful client */
+import com.mashape.unirest.http.Unirest;
+import com.mashape.unirest.http.Headers;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.HttpResponse;
+
+/** JSON **/
+import org.json.JSONObject;
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Writes to Neo4J's transactional HTTP endpoint. Everything is written within
+ * one transaction which is committed when the sink is closed, unless periodic
+ * commits are enabled or requests are sent asynchronously. In the latter case
+ * every request is committed on its own.
+ *
+ * Neo4J rolls back a transaction as soon as one of its requests fails. When
+ * retries are enabled, the requests of the current transaction are kept
+ * until it has been committed, so that a failed request can be retried in a
+ * new transaction after writing them again.
+ */
+public class RestGraphSink extends CypherGraphSink {
+
+    public static String REST_ENDPOINT = "/db/data";
+    public static String TRANSACTION_ENDPOINT = "/db/data/transaction";
+
+    private static final String EMPTY_STATEMENTS = "{\"statements\":[]}";
+
+    private final String serverRootUrl;
+    private final HttpTransport transport;
+    private final WriteOptions options;
+    private final String bulkNodeLabel;
+    private final boolean verbose;
+    private final Logger cqlLogger;
+    private final Metrics metrics;
+
+    private final PeriodicCommit periodicCommit;
+    private final RetryPolicy retryPolicy;
+
+    private String transaction;
+    private StatementBuffer statementBuffer;
+    // Requests of the current transaction, only kept when retries are enabled
+    private final List<JsonBuffer> uncommitted = new ArrayList<>();
+
+    public RestGraphSink (String serverRootUrl, HttpTransport transport, String ontologyLabel, String bulkNodeLabel, WriteOptions options, boolean verbose, Logger cqlLogger, Metrics metrics) {
+        super(ontologyLabel);
+        this.serverRootUrl = serverRootUrl;
+        this.transport = transport;
+        this.bulkNodeLabel = bulkNodeLabel;
+        this.options = options;
+        this.verbose = verbose;
+        this.cqlLogger = cqlLogger;
+        this.metrics = metrics;
+        this.periodicCommit = new PeriodicCommit(
+            options.httpStatementsPerCommit(),
+            options.secondsPerCommit,
+            verbose
+        );
+        this.retryPolicy = new RetryPolicy(options.retries);
+    }
+
+    /**
+     * Sets up the HTTP connections to Neo4J and checks the server and the
+     * credentials.
+     */
+    public static HttpTransport checkServer (String serverRootUrl, String authenticationHeader, HttpOptions httpOptions, boolean verbose) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-type", "application/json");
+        headers.put("Accept", "application/json; charset=UTF-8");
+        // Yields better performance and reduces memory load on the Neo4J server
+        // http://neo4j.com/docs/stable/rest-api-streaming.html
+        headers.put("X-Stream", "true");
+        headers.put("Authorization", authenticationHeader);
+        HttpTransport transport = new HttpTransport(httpOptions, headers);
+        transport.install();
+
+        // Test if server is available
+        try {
+            if (verbose) {
+                System.out.println("Checking Neo4J at " + serverRootUrl + "... " + Owl2Neo4J.ANSI_DIM);
+            } else {
+                System.out.print("Checking Neo4J at " + serverRootUrl + "... ");
+            }
+
+            Unirest.get(
+                serverRootUrl
+            ).asJson();
+
+            if (verbose) {
+                System.out.println(Owl2Neo4J.ANSI_RESET + "Checking Neo4J at " + serverRootUrl + "... " + Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            } else {
+                System.out.println(Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error("Error querying Neo4J server root URL");
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+
+        // Try authentication
+        try {
+            if (verbose) {
+                System.out.println("Checking credentials for Neo4J... " + Owl2Neo4J.ANSI_DIM);
+            } else {
+                System.out.print("Checking credentials for Neo4J... ");
+            }
+
+            Unirest.get(
+                serverRootUrl + REST_ENDPOINT
+            ).asJson();
+
+            if (verbose) {
+                System.out.println(Owl2Neo4J.ANSI_RESET + "Checking credentials for Neo4J... " + Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            } else {
+                System.out.println(Owl2Neo4J.ANSI_GREEN + "\u2713" + Owl2Neo4J.ANSI_RESET);
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error("Error querying Neo4J REST endpoint");
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        }
+
+        return transport;
+    }
+
+    @Override
+    public void open () {
+        if (this.isAsync()) {
+            this.statementBuffer = new AsyncStatementBuffer(
+                this.transport,
+                this.serverRootUrl + TRANSACTION_ENDPOINT + "/commit",
+                this.options.statementsPerRequest,
+                this.options.bytesPerRequest,
+                this.options.requestsInFlight,
+                this.options.gzipRequests,
+                this.verbose,
+                this.cqlLogger,
+                this.metrics
+            );
+        } else {
+            this.initTransaction();
+            this.statementBuffer = new StatementBuffer(
+                this.transport,
+                this.serverRootUrl + TRANSACTION_ENDPOINT + this.transaction,
+                this.options.statementsPerRequest,
+                this.options.bytesPerRequest,
+                this.options.gzipRequests,
+                this.verbose,
+                this.cqlLogger,
+                this.metrics
+            ) {
+                @Override
+                protected void send (JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+                    // The payload is released once it has been sent
+                    JsonBuffer copy = null;
+                    if (retryPolicy.isEnabled()) {
+                        copy = new JsonBuffer(payload.size()).append(payload);
+                    }
+                    super.send(payload, offsets, errorTitles, kind);
+                    if (copy != null) {
+                        uncommitted.add(copy);
+                    }
+                    periodicCommit.sent(offsets.size());
+                    if (periodicCommit.isDue()) {
+                        commitChunk();
+                        beginChunk();
+                    }
+                }
+
+                @Override
+                protected String recover (String url) throws IOException {
+                    return restartTransaction();
+                }
+            };
+        }
+        this.statementBuffer.setRetryPolicy(this.retryPolicy);
+        if (this.options.targetLatency > 0) {
+            this.statementBuffer.setBatchSize(
+                new AdaptiveBatchSize(this.options.statementsPerRequest, this.options.targetLatency)
+            );
+        }
+
+        BulkWriter bulkWriter = null;
+        if (this.options.bulk) {
+            bulkWriter = new BulkWriter(
+                this.statementBuffer,
+                this.bulkNodeLabel,
+                this.ontologyLabel,
+                this.options.rowsPerChunk
+            );
+        }
+
+        this.setWriters(this.statementBuffer, bulkWriter);
+    }
+
+    @Override
+    public void commit () {
+        this.flush();
+        // Asynchronous requests are committed already when flushing returns
+        if (!this.isAsync()) {
+            this.commitChunk();
+            this.beginChunk();
+        }
+    }
+
+    @Override
+    public void close () {
+        this.flush();
+        if (this.isAsync()) {
+            ((AsyncStatementBuffer) this.statementBuffer).shutdown();
+        } else if (this.periodicCommit.isEnabled()) {
+            this.commitChunk();
+            this.periodicCommit.printSummary();
+        } else {
+            this.commitTransaction();
+        }
+    }
+
+    private void commitChunk () {
+        long start = System.nanoTime();
+        this.commitTransaction();
+        this.periodicCommit.committed(System.nanoTime() - start);
+    }
+
+    private void beginChunk () {
+        this.initTransaction();
+        this.statementBuffer.setUrl(this.serverRootUrl + TRANSACTION_ENDPOINT + this.transaction);
+    }
+
+    private boolean isAsync () {
+        return this.options.requestsInFlight > 0;
+    }
+
+    private void initTransaction () {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                this.beginTransaction();
+                return;
+            } catch (Exception e) {
+                if (!this.retryPolicy.retry(e, attempt, "beginning a transaction", this.metrics, this.verbose)) {
+                    Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + "Error initiating transaction");
+                    Owl2Neo4J.print_error(e.getMessage());
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
+    private void beginTransaction () throws Exception {
+        // Fire empty statement to initialize transaction
+        long start = System.nanoTime();
+        HttpResponse<JsonNode> response = Unirest.post(
+            this.serverRootUrl + TRANSACTION_ENDPOINT)
+                .body(EMPTY_STATEMENTS)
+                .asJson();
+        this.metrics.request(Metrics.BEGIN, System.nanoTime() - start, EMPTY_STATEMENTS.length(), EMPTY_STATEMENTS.length());
+        Headers headers = response.getHeaders();
+        String location = "";
+        if (headers.containsKey("location")) {
+            location = headers.get("location").toString();
+            this.transaction = location.substring(
+                location.lastIndexOf("/"),
+                location.length() -1
+            );
+        }
+        if (this.verbose) {
+            System.out.println(
+                "Transaction initialized. Commit at " +
+                    location +
+                    " [Neo4J status:" +
+                    Integer.toString(response.getStatus()) +
+                    "]"
+            );
+        }
+        checkForError(response);
+    }
+
+    private void commitTransaction () {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (attempt > 0) {
+                    this.restartTransaction();
+                }
+                long start = System.nanoTime();
+                HttpResponse<JsonNode> response = Unirest.post(
+                    this.serverRootUrl + TRANSACTION_ENDPOINT + this.transaction + "/commit")
+                    .body(EMPTY_STATEMENTS)
+                        .asJson();
+                this.metrics.request(Metrics.COMMIT, System.nanoTime() - start, EMPTY_STATEMENTS.length(), EMPTY_STATEMENTS.length());
+                if (this.verbose) {
+                    System.out.println(
+                        "Transaction committed. [Neo4J status:" +
+                        Integer.toString(response.getStatus()) +
+                        "]"
+                    );
+                }
+                checkForError(response);
+                this.uncommitted.clear();
+                return;
+            } catch (Exception e) {
+                if (!this.retryPolicy.retry(e, attempt, "committing a transaction", this.metrics, this.verbose)) {
+                    Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + "Error committing transaction");
+                    Owl2Neo4J.print_error(e.getMessage());
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rolls back the current transaction, unless Neo4J did already, and
+     * writes everything written since the last commit again in a new one.
+     *
+     * @return URL of the new transaction.
+     */
+    private String restartTransaction () throws IOException {
+        this.rollbackTransaction();
+        try {
+            this.beginTransaction();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        String url = this.serverRootUrl + TRANSACTION_ENDPOINT + this.transaction;
+        this.statementBuffer.setUrl(url);
+        for (JsonBuffer request: this.uncommitted) {
+            ResponseScanner result = this.statementBuffer.execute(url, request, Metrics.MIXED);
+            if (result.hasError()) {
+                throw new IOException("Error writing the transaction again: " + result.errorCode + ": \"" + result.errorMessage + "\"");
+            }
+        }
+        if (this.verbose && !this.uncommitted.isEmpty()) {
+            System.out.println("Wrote " + this.uncommitted.size() + " requests of the failed transaction again");
+        }
+        return url;
+    }
+
+    private void rollbackTransaction () {
+        // The transaction might be gone already or still hold locks, which would block writing it again until it
+        // times out.
+        try {
+            Unirest.delete(this.serverRootUrl + TRANSACTION_ENDPOINT + this.transaction).asString();
+        } catch (Exception e) {
+            if (this.verbose) {
+                System.out.println("Rolling back the transaction failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void checkForError (HttpResponse<JsonNode> response) throws Exception {
+        JSONObject jsonResponse = response.getBody().getObject();
+        JSONArray errors = (JSONArray) jsonResponse.get("errors");
+        if (errors.length() > 0) {
+            JSONObject error = (JSONObject) errors.get(0);
+            String code = error.get("code").toString();
+            if (RetryPolicy.isTransientError(code)) {
+                throw new RetryPolicy.TransientException(code, error.get("message").toString());
+            }
+            String errorMsg = code + ": \"" + error.get("message").toString() + "\"";
+            throw new Exception(errorMsg);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.refinery_platform.owl2neo4j;
+
+/** OWL API */
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The existential restrictions of every class on the properties given with
+ * `--eqp`, collected in one pass over the subclass axioms of the ontology
+ * instead of class by class.
+ *
+ * Large ontologies are split into partitions of axioms which are visited in
+ * parallel and merged in order afterwards. Once built the index is only read
+ * and can be shared by the extraction workers.
+ */
+public class RestrictionIndex {
+
+    // Smallest number of axioms worth a thread of its own
+    private static final int MIN_PARTITION_SIZE = 10000;
+
+    // Relationship type and filler of the restrictions of every class
+    private final Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> restrictions;
+    private int size = 0;
+
+    private RestrictionIndex (Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> restrictions) {
+        this.restrictions = restrictions;
+        for (List<Owl2Neo4J.Tuple<String, OWLClass>> list: restrictions.values()) {
+            this.size += list.size();
+        }
+    }
+
+    /**
+     * @param properties Restricted properties -> relationship type. Other
+     *   restrictions are skipped.
+     * @param nested Include restrictions in intersections, e.g. of
+     *   `A subClassOf (B and part_of some C)`.
+     */
+    public static RestrictionIndex build (
+        OWLOntology ontology,
+        final Map<OWLObjectPropertyExpression, String> properties,
+        final boolean nested,
+        int threads
+    ) throws Exception {
+        if (properties.isEmpty()) {
+            return new RestrictionIndex(new HashMap<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>>());
+        }
+
+        final List<OWLSubClassOfAxiom> axioms = new ArrayList<>(ontology.getAxioms(AxiomType.SUBCLASS_OF));
+        int partitions = Math.max(1, Math.min(threads, axioms.size() / MIN_PARTITION_SIZE));
+        if (partitions == 1) {
+            return new RestrictionIndex(collect(axioms, properties, nested));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(partitions);
+        List<Future<Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>>>> futures = new ArrayList<>();
+        int partitionSize = (axioms.size() + partitions - 1) / partitions;
+        for (int start = 0; start < axioms.size(); start += partitionSize) {
+            final List<OWLSubClassOfAxiom> partition = axioms.subList(
+                start, Math.min(axioms.size(), start + partitionSize)
+            );
+            futures.add(executor.submit(new Callable<Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>>>() {
+                @Override
+                public Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> call() {
+                    return collect(partition, properties, nested);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> restrictions = new HashMap<>();
+        try {
+            for (Future<Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>>> future: futures) {
+                for (Map.Entry<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> entry: future.get().entrySet()) {
+                    List<Owl2Neo4J.Tuple<String, OWLClass>> merged = restrictions.get(entry.getKey());
+                    if (merged == null) {
+                        restrictions.put(entry.getKey(), entry.getValue());
+                    } else {
+                        // Axioms of the same class may end up in different partitions
+                        for (Owl2Neo4J.Tuple<String, OWLClass> restriction: entry.getValue()) {
+                            if (!merged.contains(restriction)) {
+                                merged.add(restriction);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw new Exception(e.getCause());
+        }
+        return new RestrictionIndex(restrictions);
+    }
+
+    private static Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> collect (
+        List<OWLSubClassOfAxiom> axioms,
+        Map<OWLObjectPropertyExpression, String> properties,
+        boolean nested
+    ) {
+        Map<OWLClass, List<Owl2Neo4J.Tuple<String, OWLClass>>> restrictions = new HashMap<>();
+        // One visitor for all axioms instead of one per class
+        Owl2Neo4J.RestrictionVisitor visitor = new Owl2Neo4J.RestrictionVisitor(nested);
+        for (OWLSubClassOfAxiom axiom: axioms) {
+            if (axiom.getSubClass().isAnonymous()) {
+                continue;
+            }
+            visitor.clear();
+            axiom.getSuperClass().accept(visitor);
+            for (Owl2Neo4J.Tuple<OWLObjectPropertyExpression, OWLClass> restriction: visitor.getRestrictions()) {
+                String relationship = properties.get(restriction.x);
+                if (relationship == null) {
+                    continue;
+                }
+                OWLClass c = axiom.getSubClass().asOWLClass();
+                List<Owl2Neo4J.Tuple<String, OWLClass>> list = restrictions.get(c);
+                if (list == null) {
+                    list = new ArrayList<>(2);
+                    restrictions.put(c, list);
+                }
+                Owl2Neo4J.Tuple<String, OWLClass> tuple = new Owl2Neo4J.Tuple<>(relationship, restriction.y);
+                if (!list.contains(tuple)) {
+                    list.add(tuple);
+                }
+            }
+        }
+        return restrictions;
+    }
+
+    /**
+     * @return Relationship type and filler of the restrictions of the class.
+     */
+    public List<Owl2Neo4J.Tuple<String, OWLClass>> get (OWLClass c) {
+        List<Owl2Neo4J.Tuple<String, OWLClass>> list = this.restrictions.get(c);
+        return list == null ? Collections.<Owl2Neo4J.Tuple<String, OWLClass>>emptyList() : list;
+    }
+
+    public int size () {
+        return this.size;
+    }
+}
@@ -0,0 +1,161 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Apache HTTP client */
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.TruncatedChunkException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.net.ssl.SSLException;
+
+/**
+ * Decides whether a failed request is sent again and how long to wait before.
+ *
+ * Failures of the connection, e.g. timeouts or resets, and errors Neo4J
+ * classifies as transient, e.g. deadlocks or running out of memory under
+ * load, are retried. Everything else, e.g. an unknown host, a failed TLS
+ * handshake, a rejected login or a response which isn't JSON, fails the
+ * same way again and isn't.
+ * The wait grows exponentially with every attempt and is picked at random up
+ * to that limit, so that clients failing at the same time don't all retry at
+ * the same time again. All statements merge, so sending one twice does no
+ * harm.
+ */
+public class RetryPolicy {
+
+    public static int DEFAULT_BASE_DELAY = 100;
+    public static int DEFAULT_MAX_DELAY = 10000;
+
+    private static final String TRANSIENT_ERROR = "Neo.TransientError.";
+
+    private final int retries;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * @param retries Max. number of retries of a request. `0` doesn't retry.
+     * @param baseDelay Max. milliseconds to wait before the first retry.
+     * @param maxDelay Max. milliseconds to wait before any retry.
+     */
+    public RetryPolicy (int retries, long baseDelay, long maxDelay) {
+        this.retries = Math.max(0, retries);
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+    }
+
+    public RetryPolicy (int retries) {
+        this(retries, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    public boolean isEnabled () {
+        return this.retries > 0;
+    }
+
+    /**
+     * Waits before the next attempt if the failure is transient and attempts
+     * are left.
+     *
+     * @param attempt Number of the failed attempt, starting with `0`.
+     * @param request Description of the request for the output.
+     * @return Whether to try again.
+     */
+    public boolean retry (Exception failure, int attempt, String request, Metrics metrics, boolean verbose) {
+        if (attempt >= this.retries || !isTransient(failure)) {
+            return false;
+        }
+        long delay = this.delay(attempt);
+        metrics.retry();
+        if (verbose) {
+            System.out.println(
+                "Retrying " + request + " in " + delay + " ms (" + (attempt + 1) + " of " + this.retries + "): " +
+                    failure.getMessage()
+            );
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Random number of milliseconds up to the base delay doubled for
+     *   every previous attempt.
+     */
+    long delay (int attempt) {
+        long limit = this.baseDelay << Math.min(attempt, 30);
+        if (limit <= 0 || limit > this.maxDelay) {
+            limit = this.maxDelay;
+        }
+        return ThreadLocalRandom.current().nextLong(limit + 1);
+    }
+
+    /**
+     * @return Whether the failure is likely to go away by itself, i.e. the
+     *   connection failed, timed out or was closed early, or Neo4J classifies
+     *   the error as transient.
+     */
+    public static boolean isTransient (Throwable failure) {
+        // HTTP clients wrap failures of the connection
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException || cause instanceof SSLException) {
+                return false;
+            }
+            if (
+                cause instanceof TransientException ||
+                cause instanceof SocketTimeoutException ||
+                cause instanceof ConnectTimeoutException ||
+                // E.g. connection refused or reset
+                cause instanceof SocketException ||
+                cause instanceof NoHttpResponseException ||
+                cause instanceof ConnectionClosedException ||
+                cause instanceof TruncatedChunkException
+            ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the failure suggests that requests are too large for
+     *   the server, i.e. it timed out or ran out of memory.
+     */
+    public static boolean isOverload (Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (cause instanceof TransientException && ((TransientException) cause).code.contains("Memory")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isTransientError (String code) {
+        return code != null && code.startsWith(TRANSIENT_ERROR);
+    }
+
+    /**
+     * Error response of Neo4J which is classified as transient, e.g.
+     * `Neo.TransientError.Transaction.DeadlockDetected`.
+     */
+    public static class TransientException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public final String code;
+
+        public TransientException (String code, String message) {
+            super(code + ": \"" + message + "\"");
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package org.refinery_platform.owl2neo4j;
+
+/** Apache HTTP client */
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Collects Cypher statements and sends them to Neo4J's transactional endpoint
+ * as a single `statements` array per request instead of one request per
+ * statement.
+ *
+ * A request is sent as soon as either the number of buffered statements or
+ * the size of the buffered payload reaches its limit. Statements of one
+ * request are executed in order, so a statement may rely on nodes created by
+ * an earlier statement of the same request.
+ *
+ * Statements are encoded straight into pooled byte buffers which are posted
+ * as they are, optionally gzipped, through a shared `HttpTransport`. Of the
+ * response only the errors are read.
+ *
+ * The latency of every request is recorded by the kind of its statements, or
+ * as `mixed` if they are of different kinds.
+ *
+ * Requests failing transiently are sent again as decided by the retry policy.
+ * With an adaptive batch size the number of statements per request follows
+ * the latency of the server instead of being fixed.
+ */
+public class StatementBuffer implements StatementWriter {
+
+    public static int DEFAULT_MAX_STATEMENTS = 500;
+    public static int DEFAULT_MAX_BYTES = 1048576;
+
+    private static String PAYLOAD_HEAD = "{\"statements\":[";
+    private static String PAYLOAD_TAIL = "]}";
+
+    private final int maxStatements;
+    private final int maxBytes;
+    private final boolean gzip;
+    private final boolean verbose;
+    private final Logger cqlLogger;
+    private final Metrics metrics;
+
+    private final HttpTransport transport;
+    protected final JsonBuffer.Pool buffers;
+    // The statement being added. Reused for every statement.
+    private final JsonBuffer statement;
+
+    private RetryPolicy retryPolicy = new RetryPolicy(0);
+    // Replaces the fixed number of statements per request when set
+    private AdaptiveBatchSize batchSize;
+
+    private String url;
+    private JsonBuffer payload;
+    // Start of every buffered statement within the payload
+    private IntList offsets = new IntList();
+    private List<String> errorTitles = new ArrayList<>();
+    // Kind of the buffered statements unless they are mixed
+    private StatementWriter.Kind kind;
+    private boolean mixed;
+
+    public StatementBuffer (HttpTransport transport, String url, int maxStatements, int maxBytes, boolean gzip, boolean verbose, Logger cqlLogger, Metrics metrics) {
+        this(transport, url, maxStatements, maxBytes, 1, gzip, verbose, cqlLogger, metrics);
+    }
+
+    /**
+     * @param maxRequests Max. number of requests being built or sent at the same time.
+     */
+    protected StatementBuffer (HttpTransport transport, String url, int maxStatements, int maxBytes, int maxRequests, boolean gzip, boolean verbose, Logger cqlLogger, Metrics metrics) {
+        this.transport = transport;
+        this.url = url;
+        this.maxStatements = Math.max(1, maxStatements);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.gzip = gzip;
+        this.verbose = verbose;
+        this.cqlLogger = cqlLogger;
+        this.metrics = metrics;
+        // Every request needs a payload and, when gzipped, a second buffer for the compressed payload.
+        this.buffers = new JsonBuffer.Pool(
+            (maxRequests + 1) * (gzip ? 2 : 1),
+            Math.min(this.maxBytes, DEFAULT_MAX_BYTES)
+        );
+        this.statement = new JsonBuffer(1024);
+    }
+
+    public void setUrl (String url) {
+        this.url = url;
+    }
+
+    public void setRetryPolicy (RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public void setBatchSize (AdaptiveBatchSize batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int size () {
+        return this.offsets.size();
+    }
+
+    /**
+     * Adds a statement to the buffer and sends the buffer when it is full.
+     */
+    @Override
+    public void add (StatementWriter.Kind kind, String cql, Map<String, Object> parameters, String errorTitle, Collection<String> nodesCreated, Collection<String> nodesMatched) {
+        JsonBuffer statement = this.statement;
+        statement.reset();
+        statement.appendRaw("{\"statement\":")
+            .appendString(cql)
+            .appendRaw(",\"parameters\":")
+            .appendValue(parameters)
+            .appendRaw('}');
+
+        // Send what we have first when the new statement would exceed the payload limit.
+        if (this.payload != null && this.bytes() + statement.size() + 1 > this.maxBytes) {
+            this.sendBuffer();
+        }
+
+        if (this.payload == null) {
+            this.payload = this.buffers.acquire();
+            this.payload.appendRaw(PAYLOAD_HEAD);
+        } else {
+            this.payload.appendRaw(',');
+        }
+        this.offsets.add(this.payload.size());
+        this.payload.append(statement);
+        this.errorTitles.add(errorTitle);
+        if (this.kind == null) {
+            this.kind = kind;
+        } else if (this.kind != kind) {
+            this.mixed = true;
+        }
+        this.metrics.statement(kind);
+        this.added(nodesCreated, nodesMatched);
+
+        if (this.offsets.size() >= this.maxStatements() || this.bytes() >= this.maxBytes) {
+            this.sendBuffer();
+        }
+    }
+
+    private int maxStatements () {
+        return this.batchSize != null ? this.batchSize.get() : this.maxStatements;
+    }
+
+    private int bytes () {
+        return this.payload.size() + PAYLOAD_TAIL.length();
+    }
+
+    /**
+     * Called after a statement has been added to the buffered request.
+     */
+    protected void added (Collection<String> nodesCreated, Collection<String> nodesMatched) {}
+
+    /**
+     * Sends all buffered statements in one request.
+     */
+    @Override
+    public void flush () {
+        this.sendBuffer();
+    }
+
+    protected void sendBuffer () {
+        if (this.payload == null) {
+            return;
+        }
+
+        this.payload.appendRaw(PAYLOAD_TAIL);
+        this.send(this.payload, this.offsets, this.errorTitles, this.mixed ? Metrics.MIXED : this.kind.key());
+
+        // The payload is released once it has been sent and the lists might still be referenced by a request in
+        // flight, so we start over with new ones.
+        this.payload = null;
+        this.offsets = new IntList();
+        this.errorTitles = new ArrayList<>();
+        this.kind = null;
+        this.mixed = false;
+    }
+
+    /**
+     * Posts one request and waits for its response.
+     *
+     * @param kind Kind of the statements of the request for the metrics.
+     */
+    protected void send (JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+        this.post(this.url, payload, offsets, errorTitles, kind);
+    }
+
+    /**
+     * Posts one request, retrying it on transient failures, checks its
+     * response and releases the payload.
+     */
+    protected void post (String url, JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    if (attempt > 0) {
+                        url = this.recover(url);
+                    }
+                    long start = System.nanoTime();
+                    ResponseScanner result = this.execute(url, payload, kind);
+                    if (this.batchSize != null && !result.hasError()) {
+                        this.batchSize.completed(System.nanoTime() - start);
+                    }
+                    checkForError(result, payload, offsets, errorTitles);
+                    break;
+                } catch (IOException e) {
+                    if (this.batchSize != null && RetryPolicy.isOverload(e)) {
+                        this.batchSize.overloaded();
+                    }
+                    if (!this.retryPolicy.retry(e, attempt, "request of " + offsets.size() + " statements", this.metrics, this.verbose)) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + "Error sending " + offsets.size() + " statements");
+            Owl2Neo4J.print_error("CQL: " + payload);
+            Owl2Neo4J.print_error(e.getMessage());
+            System.exit(1);
+        } finally {
+            this.buffers.release(payload);
+        }
+    }
+
+    /**
+     * Called before a failed request is sent again.
+     *
+     * @return URL to send the request to.
+     */
+    protected String recover (String url) throws IOException {
+        return url;
+    }
+
+    /**
+     * Posts a request once.
+     *
+     * @return The response, unless it is a transient error which is thrown.
+     */
+    protected ResponseScanner execute (String url, JsonBuffer payload, String kind) throws IOException {
+        JsonBuffer compressed = null;
+        try {
+            HttpPost request = new HttpPost(url);
+            if (this.gzip) {
+                compressed = this.buffers.acquire();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+                    out.write(payload.array(), 0, payload.size());
+                }
+                request.setHeader("Content-Encoding", "gzip");
+                request.setEntity(new ByteArrayEntity(compressed.array(), 0, compressed.size()));
+            } else {
+                request.setEntity(new ByteArrayEntity(payload.array(), 0, payload.size()));
+            }
+
+            ResponseScanner result;
+            long start = System.nanoTime();
+            try (CloseableHttpResponse response = this.transport.execute(request)) {
+                try (InputStream in = response.getEntity().getContent()) {
+                    result = ResponseScanner.scan(in);
+                }
+                // Hands the connection back to the pool for the next request
+                EntityUtils.consume(response.getEntity());
+            }
+            this.metrics.request(
+                kind,
+                System.nanoTime() - start,
+                compressed != null ? compressed.size() : payload.size(),
+                payload.size()
+            );
+
+            if (this.verbose) {
+                System.out.println("CQL: " + payload);
+                this.cqlLogger.info(payload.toString());
+            }
+
+            if (RetryPolicy.isTransientError(result.errorCode)) {
+                throw new RetryPolicy.TransientException(result.errorCode, result.errorMessage);
+            }
+            return result;
+        } finally {
+            if (compressed != null) {
+                this.buffers.release(compressed);
+            }
+        }
+    }
+
+    /**
+     * Neo4J stops executing a request at the first failing statement and only
+     * returns results for the statements before it, so the number of results
+     * tells us which statement failed.
+     */
+    private static void checkForError (ResponseScanner response, JsonBuffer payload, IntList offsets, List<String> errorTitles) {
+        if (response.hasError()) {
+            int failed = failedStatement(response, offsets);
+            Owl2Neo4J.print_error(Owl2Neo4J.ANSI_RESET_DIM + errorTitles.get(failed));
+            Owl2Neo4J.print_error("CQL: " + statement(payload, offsets, failed));
+            Owl2Neo4J.print_error(response.errorCode + ": \"" + response.errorMessage + "\"");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return Index of the statement of a request which failed.
+     */
+    static int failedStatement (ResponseScanner response, IntList offsets) {
+        return Math.min(response.results, offsets.size() - 1);
+    }
+
+    /**
+     * @return A statement of a request as it has been sent.
+     */
+    static String statement (JsonBuffer payload, IntList offsets, int index) {
+        int end = index + 1 < offsets.size() ? offsets.get(index + 1) - 1 : payload.size() - PAYLOAD_TAIL.length();
+        return payload.toString(offsets.get(index), end);
+    }
+}
@@ -0,0 +1,41 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Sends parameterized Cypher statements to Neo4J. Statements may be buffered
+ * and even sent concurrently but a statement is never executed before the
+ * statements which create the nodes it matches.
+ */
+public interface StatementWriter {
+
+    /**
+     * What a statement writes. Kept apart in the metrics.
+     */
+    enum Kind {
+        NODE,
+        LABEL,
+        PROPERTY,
+        RELATIONSHIP;
+
+        String key () {
+            return this.name().toLowerCase();
+        }
+    }
+
+    /**
+     * @param kind What the statement writes.
+     * @param cql Cypher statement
+     * @param parameters Statement parameters. Values are strings, numbers, lists or maps.
+     * @param errorTitle Message printed when this statement fails.
+     * @param nodesCreated URIs of the nodes created by the statement.
+     * @param nodesMatched URIs of the nodes the statement expects to exist already.
+     */
+    void add (Kind kind, String cql, Map<String, Object> parameters, String errorTitle, Collection<String> nodesCreated, Collection<String> nodesMatched);
+
+    /**
+     * Sends all buffered statements.
+     */
+    void flush ();
+}
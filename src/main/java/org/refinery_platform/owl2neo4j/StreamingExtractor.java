@@ -0,0 +1,582 @@
+package org.refinery_platform.owl2neo4j;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts the asserted class hierarchy straight from an RDF/XML document in
+ * a single pass, without loading the ontology into the OWL API.
+ *
+ * Only what the import writes is kept: named classes, their named
+ * superclasses, asserted equivalent classes, labels and existential
+ * restrictions on the given properties with a named filler, optionally also
+ * those nested in intersections. Everything else,
+ * e.g. properties, individuals, annotations and anonymous class expressions,
+ * is skipped while reading. Nothing is inferred and imports aren't followed,
+ * which makes it the equivalent of the structural reasoner on the ontology
+ * alone.
+ *
+ * References may come before the declaration of a class, so classes are
+ * collected in a `Taxonomy.Builder` first and added in the order of their
+ * URIs once the whole document has been read. Like the structural reasoner,
+ * asserted equivalent classes are treated as one set which shares its
+ * superclasses.
+ *
+ * Nothing is written before the document has been read, i.e. the whole
+ * hierarchy is held in memory, only in the compact form of the `Taxonomy`
+ * instead of the OWL API's axioms. Statements about a class may appear
+ * anywhere in the document, so a class is only complete at its end.
+ */
+public class StreamingExtractor {
+
+    static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+    static final String OWL = "http://www.w3.org/2002/07/owl#";
+
+    private static final String OWL_CLASS = OWL + "Class";
+    private static final String OWL_NOTHING = OWL + "Nothing";
+
+    private final Set<String> properties;
+    private final boolean nested;
+    private final boolean expand;
+    private final String ontologyAcronym;
+
+    private final Taxonomy.Builder builder = new Taxonomy.Builder();
+    private final LabelIndex labels;
+    private final int thing;
+    // IDs of named classes
+    private final BitSet classes = new BitSet();
+    // Asserted relationships, which are resolved in `build`
+    private IntList superClassSources = new IntList();
+    private IntList superClassTargets = new IntList();
+    private IntList equivalentClassSources = new IntList();
+    private IntList equivalentClassTargets = new IntList();
+    // Groups of equivalent classes, see `groupEquivalentClasses`
+    private final BitSet equivalent = new BitSet();
+    private int[] groups;
+    private Taxonomy.Edges groupMembers;
+
+    private String ontologyUri;
+    private String versionIri;
+    private String base;
+
+    /**
+     * @param properties IRIs of the object properties whose existential
+     *   restrictions are extracted, see `--eqp`.
+     * @param nested Include restrictions nested in intersections.
+     * @param expand Write superclasses and equivalences for every member of
+     *   a set of equivalent classes, see `--expand-equivalences`.
+     * @param languages Preferred label languages, see `LabelIndex`.
+     */
+    public StreamingExtractor (
+        List<String> properties,
+        boolean nested,
+        boolean expand,
+        List<String> languages,
+        String ontologyAcronym
+    ) {
+        this.properties = new HashSet<>(properties);
+        this.nested = nested;
+        this.expand = expand;
+        this.labels = new LabelIndex(languages);
+        this.ontologyAcronym = ontologyAcronym;
+        this.thing = this.builder.id(Owl2Neo4J.ROOT_CLASS_URI, Owl2Neo4J.ROOT_CLASS_ONT_ID);
+    }
+
+    public String getOntologyUri () {
+        return this.ontologyUri;
+    }
+
+    public String getVersionIri () {
+        return this.versionIri;
+    }
+
+    /**
+     * Reads the whole document.
+     */
+    public void parse (File file) throws Exception {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // Entities declared in the document, e.g. `&obo;`, are expanded but
+        // nothing is fetched from elsewhere.
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            // OBO ontologies easily use more entities than the JDK allows by default
+            factory.setProperty("http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit", "0");
+        } catch (IllegalArgumentException e) {
+            // Not a JDK parser
+        }
+
+        this.base = file.toURI().toString();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                if (nextTag(reader) != XMLStreamConstants.START_ELEMENT || !(RDF + "RDF").equals(iri(reader))) {
+                    throw new Exception("The ontology isn't RDF/XML.");
+                }
+                String base = reader.getAttributeValue(XMLConstants.XML_NS_URI, "base");
+                if (base != null) {
+                    this.base = base;
+                }
+                while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+                    this.nodeElement(reader);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new Exception("Error parsing the ontology: " + e.getMessage());
+        }
+
+        if (this.ontologyUri == null) {
+            throw new Exception("Ontology doesn't have a URI.");
+        }
+    }
+
+    /**
+     * @param resumeAfter Only classes after this URI are extracted, or all
+     *   classes for `null`.
+     */
+    public Taxonomy build (String resumeAfter) {
+        List<Integer> ids = new ArrayList<>(this.classes.cardinality());
+        for (int id = this.classes.nextSetBit(0); id >= 0; id = this.classes.nextSetBit(id + 1)) {
+            if (resumeAfter == null || this.builder.uri(id).compareTo(resumeAfter) > 0) {
+                ids.add(id);
+            }
+        }
+        Integer[] sorted = ids.toArray(new Integer[ids.size()]);
+        ids = null;
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return builder.uri(a).compareTo(builder.uri(b));
+            }
+        });
+
+        int size = this.builder.size();
+        Taxonomy.Edges superClasses = Taxonomy.Edges.of(size, this.superClassSources, this.superClassTargets);
+        this.superClassSources = null;
+        this.superClassTargets = null;
+        this.groupEquivalentClasses(size);
+
+        for (int id: sorted) {
+            this.builder.addClass(id);
+            Owl2Neo4J.Label label = this.labels.get(this.builder.uri(id));
+            if (label.getText() != null) {
+                this.builder.setLabel(id, label.getText(), label.getLang());
+            }
+
+            // Superclasses of equivalent classes are shared. Unless expanded
+            // they are attached to the canonical member only, which the
+            // other members point to.
+            int[] equivalents = this.members(id);
+            if (!this.expand && equivalents.length > 1) {
+                int canonical = this.canonical(equivalents);
+                if (canonical != id) {
+                    this.builder.addEquivalentClass(id, canonical);
+                    continue;
+                }
+            }
+            IntList targets = new IntList(4);
+            for (int member: equivalents) {
+                for (int i = superClasses.start(member); i < superClasses.end(member); i++) {
+                    int superClass = superClasses.targets[i];
+                    if (contains(equivalents, superClass)) {
+                        continue;
+                    }
+                    int[] superClassMembers = this.members(superClass);
+                    if (!this.expand) {
+                        superClassMembers = new int[] {this.canonical(superClassMembers)};
+                    }
+                    for (int target: superClassMembers) {
+                        if (!contains(targets, target)) {
+                            targets.add(target);
+                        }
+                    }
+                }
+            }
+            if (targets.isEmpty()) {
+                targets.add(this.thing);
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                this.builder.addSuperClass(id, targets.get(i));
+            }
+
+            if (this.expand) {
+                for (int member: equivalents) {
+                    if (member != id) {
+                        this.builder.addEquivalentClass(id, member);
+                    }
+                }
+            }
+        }
+
+        // Names depend on the ontology URI, which is only known for sure at
+        // the end of the document.
+        Taxonomy taxonomy = this.builder.build();
+        for (int id = 0; id < taxonomy.ontIDs.length; id++) {
+            if (taxonomy.ontIDs[id] == null) {
+                taxonomy.ontIDs[id] = Owl2Neo4J.getOntID(taxonomy.uris[id], this.ontologyUri, this.ontologyAcronym);
+            }
+        }
+        for (int i = 0; i < taxonomy.restrictionTypes.length; i++) {
+            taxonomy.restrictionTypes[i] = Owl2Neo4J.getOntID(
+                taxonomy.restrictionTypes[i], this.ontologyUri, this.ontologyAcronym
+            );
+        }
+        return taxonomy;
+    }
+
+    /**
+     * Groups classes which are asserted to be equivalent, directly or via
+     * other classes, and lists the members of every group of more than one
+     * class under the ID of the group.
+     */
+    private void groupEquivalentClasses (int size) {
+        this.groups = new int[size];
+        for (int id = 0; id < size; id++) {
+            this.groups[id] = id;
+        }
+        for (int i = 0; i < this.equivalentClassSources.size(); i++) {
+            int a = this.group(this.equivalentClassSources.get(i));
+            int b = this.group(this.equivalentClassTargets.get(i));
+            this.groups[Math.max(a, b)] = Math.min(a, b);
+        }
+        IntList sources = new IntList();
+        IntList targets = new IntList();
+        for (int i = 0; i < this.equivalentClassSources.size(); i++) {
+            this.equivalent.set(this.equivalentClassSources.get(i));
+            this.equivalent.set(this.equivalentClassTargets.get(i));
+        }
+        for (int id = this.equivalent.nextSetBit(0); id >= 0; id = this.equivalent.nextSetBit(id + 1)) {
+            sources.add(this.group(id));
+            targets.add(id);
+        }
+        this.groupMembers = Taxonomy.Edges.of(size, sources, targets);
+        this.equivalentClassSources = null;
+        this.equivalentClassTargets = null;
+    }
+
+    private int group (int id) {
+        while (this.groups[id] != id) {
+            this.groups[id] = this.groups[this.groups[id]];
+            id = this.groups[id];
+        }
+        return id;
+    }
+
+    /**
+     * @return The class and all classes equivalent to it.
+     */
+    private int[] members (int id) {
+        if (!this.equivalent.get(id)) {
+            return new int[] {id};
+        }
+        int group = this.group(id);
+        return Arrays.copyOfRange(
+            this.groupMembers.targets, this.groupMembers.start(group), this.groupMembers.end(group)
+        );
+    }
+
+    /**
+     * @return The member of a group of equivalent classes with the smallest
+     *   URI, like `Owl2Neo4J.canonicalClass`.
+     */
+    private int canonical (int[] members) {
+        int canonical = members[0];
+        for (int i = 1; i < members.length; i++) {
+            if (this.builder.uri(members[i]).compareTo(this.builder.uri(canonical)) < 0) {
+                canonical = members[i];
+            }
+        }
+        return canonical;
+    }
+
+    private static boolean contains (int[] ids, int id) {
+        for (int element: ids) {
+            if (element == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains (IntList ids, int id) {
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a top-level node element, i.e. the description of one subject.
+     */
+    private void nodeElement (XMLStreamReader reader) throws XMLStreamException {
+        String type = iri(reader);
+        String subject = this.subject(reader);
+
+        if ((OWL + "Ontology").equals(type)) {
+            this.ontologyUri = subject;
+            while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+                if ((OWL + "versionIRI").equals(iri(reader))) {
+                    this.versionIri = this.resource(reader);
+                }
+                skip(reader);
+            }
+            return;
+        }
+
+        if (subject == null || !(OWL_CLASS.equals(type) || (RDF + "Description").equals(type))) {
+            skip(reader);
+            return;
+        }
+
+        boolean isClass = OWL_CLASS.equals(type);
+        List<String> superClasses = new ArrayList<>(2);
+        List<String> equivalentClasses = new ArrayList<>(1);
+        List<String> restrictions = new ArrayList<>(2);
+        List<String> labels = new ArrayList<>(2);
+
+        while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+            String property = iri(reader);
+            if ((RDF + "type").equals(property)) {
+                isClass |= OWL_CLASS.equals(this.resource(reader));
+                skip(reader);
+            } else if ((RDFS + "subClassOf").equals(property)) {
+                isClass = true;
+                this.classExpression(reader, superClasses, restrictions);
+            } else if ((OWL + "equivalentClass").equals(property)) {
+                isClass = true;
+                this.classExpression(reader, equivalentClasses, null);
+            } else if ((RDFS + "label").equals(property) && reader.getAttributeValue(RDF, "parseType") == null) {
+                labels.add(reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang"));
+                labels.add(reader.getElementText());
+            } else {
+                skip(reader);
+            }
+        }
+
+        // Labels of classes may also be described on their own
+        for (int i = 0; i < labels.size(); i += 2) {
+            this.labels.add(subject, labels.get(i + 1), labels.get(i));
+        }
+        if (!isClass || OWL_NOTHING.equals(subject) || Owl2Neo4J.ROOT_CLASS_URI.equals(subject)) {
+            return;
+        }
+
+        int id = this.classId(subject);
+        for (String superClass: superClasses) {
+            if (!OWL_NOTHING.equals(superClass)) {
+                this.superClassSources.add(id);
+                this.superClassTargets.add(this.classId(superClass));
+            }
+        }
+        for (int i = 0; i < restrictions.size(); i += 2) {
+            this.builder.addRestriction(id, restrictions.get(i), this.classId(restrictions.get(i + 1)));
+        }
+        for (String equivalentClass: equivalentClasses) {
+            if (!OWL_NOTHING.equals(equivalentClass) && !Owl2Neo4J.ROOT_CLASS_URI.equals(equivalentClass)) {
+                this.equivalentClassSources.add(id);
+                this.equivalentClassTargets.add(this.classId(equivalentClass));
+            }
+        }
+    }
+
+    /**
+     * Reads the object of `rdfs:subClassOf` or `owl:equivalentClass`. Named
+     * classes are added to `named`, existential restrictions on one of the
+     * extracted properties as property and filler to `restrictions`.
+     */
+    private void classExpression (
+        XMLStreamReader reader,
+        List<String> named,
+        List<String> restrictions
+    ) throws XMLStreamException {
+        String resource = this.resource(reader);
+        if (resource != null) {
+            named.add(resource);
+            skip(reader);
+            return;
+        }
+        while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+            String type = iri(reader);
+            if (OWL_CLASS.equals(type) || (RDF + "Description").equals(type)) {
+                String uri = this.subject(reader);
+                if (uri != null) {
+                    named.add(uri);
+                    skip(reader);
+                } else if (this.nested && restrictions != null) {
+                    this.intersection(reader, restrictions);
+                } else {
+                    skip(reader);
+                }
+            } else if ((OWL + "Restriction").equals(type) && restrictions != null) {
+                this.restriction(reader, restrictions);
+            } else {
+                skip(reader);
+            }
+        }
+    }
+
+    /**
+     * Reads the restrictions of an anonymous class which is an intersection,
+     * including intersections nested in it.
+     */
+    private void intersection (XMLStreamReader reader, List<String> restrictions) throws XMLStreamException {
+        while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (!(OWL + "intersectionOf").equals(iri(reader))) {
+                skip(reader);
+                continue;
+            }
+            while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+                String type = iri(reader);
+                if ((OWL + "Restriction").equals(type)) {
+                    this.restriction(reader, restrictions);
+                } else if (OWL_CLASS.equals(type) && this.subject(reader) == null) {
+                    this.intersection(reader, restrictions);
+                } else {
+                    skip(reader);
+                }
+            }
+        }
+    }
+
+    private void restriction (XMLStreamReader reader, List<String> restrictions) throws XMLStreamException {
+        String property = null;
+        String filler = null;
+        while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+            String iri = iri(reader);
+            if ((OWL + "onProperty").equals(iri)) {
+                property = this.resource(reader);
+                skip(reader);
+            } else if ((OWL + "someValuesFrom").equals(iri)) {
+                filler = this.resource(reader);
+                if (filler == null) {
+                    // A nested named class
+                    while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+                        if (OWL_CLASS.equals(iri(reader))) {
+                            filler = this.subject(reader);
+                        }
+                        skip(reader);
+                    }
+                } else {
+                    skip(reader);
+                }
+            } else {
+                skip(reader);
+            }
+        }
+        if (property == null || filler == null || !this.properties.contains(property)) {
+            return;
+        }
+        for (int i = 0; i < restrictions.size(); i += 2) {
+            if (restrictions.get(i).equals(property) && restrictions.get(i + 1).equals(filler)) {
+                return;
+            }
+        }
+        restrictions.add(property);
+        restrictions.add(filler);
+    }
+
+    /**
+     * @return The ID of a referenced class, which counts as a class of the
+     *   ontology from now on.
+     */
+    private int classId (String uri) {
+        if (Owl2Neo4J.ROOT_CLASS_URI.equals(uri)) {
+            return this.thing;
+        }
+        // The ID space depends on the ontology URI and is added in `build`
+        int id = this.builder.id(uri, null);
+        this.classes.set(id);
+        return id;
+    }
+
+    /**
+     * @return The IRI of a node element or `null` for blank nodes.
+     */
+    private String subject (XMLStreamReader reader) {
+        String about = reader.getAttributeValue(RDF, "about");
+        if (about != null) {
+            return this.resolve(about);
+        }
+        String id = reader.getAttributeValue(RDF, "ID");
+        if (id != null) {
+            return this.resolve("#" + id);
+        }
+        return null;
+    }
+
+    private String resource (XMLStreamReader reader) {
+        String resource = reader.getAttributeValue(RDF, "resource");
+        return resource == null ? null : this.resolve(resource);
+    }
+
+    private String resolve (String reference) {
+        // Almost all references are absolute already
+        if (reference.indexOf(':') > 0) {
+            return reference;
+        }
+        if (reference.startsWith("#")) {
+            int hash = this.base.indexOf('#');
+            return (hash < 0 ? this.base : this.base.substring(0, hash)) + reference;
+        }
+        return URI.create(this.base).resolve(reference).toString();
+    }
+
+    private static String iri (XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace == null ? reader.getLocalName() : namespace + reader.getLocalName();
+    }
+
+    /**
+     * Moves to the next start or end tag, skipping text, comments and the
+     * like.
+     */
+    private static int nextTag (XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                return event;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Skips the current element including everything nested in it.
+     */
+    private static void skip (XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = nextTag(reader);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The extracted class hierarchy, independent of the OWL API, so that the
+ * ontology and the reasoner can be released before anything is written. All
+ * sinks write from it, and it's what `--cache` and `--diff` store.
+ *
+ * Every class gets a dense int ID. Properties are kept in parallel arrays
+ * indexed by ID and relationships in compressed sparse row form, i.e. the
+ * targets of all relationships of a class are stored next to each other in
+ * one int array per relationship type. Writing therefore doesn't allocate
+ * anything per relationship.
+ *
+ * IDs are assigned to every class which has been seen, including superclasses
+ * and equivalent classes from imported ontologies and `owl:Thing`. Only the
+ * classes listed in `classes` have been extracted themselves and are written
+ * with their labels and relationships.
+ */
+public class Taxonomy {
+
+    /**
+     * Relationships of a single type in compressed sparse row form. The
+     * targets of class `id` are `targets[offsets[id]]` up to, but excluding,
+     * `targets[offsets[id + 1]]`.
+     */
+    public static class Edges {
+        public final int[] offsets;
+        public final int[] targets;
+
+        public Edges (int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        public int start (int id) {
+            return this.offsets[id];
+        }
+
+        public int end (int id) {
+            return this.offsets[id + 1];
+        }
+
+        public int size () {
+            return this.targets.length;
+        }
+
+        /**
+         * Sorts relationships by their source with a counting sort. The order
+         * of relationships of the same source is kept.
+         */
+        static Edges of (int classes, IntList sources, IntList targets) {
+            int[] offsets = new int[classes + 1];
+            for (int i = 0; i < sources.size(); i++) {
+                offsets[sources.get(i) + 1]++;
+            }
+            for (int id = 0; id < classes; id++) {
+                offsets[id + 1] += offsets[id];
+            }
+            int[] next = new int[classes];
+            System.arraycopy(offsets, 0, next, 0, classes);
+            int[] sorted = new int[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                sorted[next[sources.get(i)]++] = targets.get(i);
+            }
+            return new Edges(offsets, sorted);
+        }
+    }
+
+    public final String[] uris;
+    public final String[] ontIDs;
+    public final String[] labels;
+    public final String[] labelLangs;
+
+    // IDs of the extracted classes in the order of their URIs
+    public final int[] classes;
+
+    public final Edges superClasses;
+    public final Edges equivalentClasses;
+    // Restrictions by relationship type
+    public final String[] restrictionTypes;
+    public final Edges[] restrictions;
+
+    public Taxonomy (
+        String[] uris,
+        String[] ontIDs,
+        String[] labels,
+        String[] labelLangs,
+        int[] classes,
+        Edges superClasses,
+        Edges equivalentClasses,
+        String[] restrictionTypes,
+        Edges[] restrictions
+    ) {
+        this.uris = uris;
+        this.ontIDs = ontIDs;
+        this.labels = labels;
+        this.labelLangs = labelLangs;
+        this.classes = classes;
+        this.superClasses = superClasses;
+        this.equivalentClasses = equivalentClasses;
+        this.restrictionTypes = restrictionTypes;
+        this.restrictions = restrictions;
+    }
+
+    /**
+     * @return Number of IDs, i.e. of all classes which have been seen.
+     */
+    public int size () {
+        return this.uris.length;
+    }
+
+    public int relationshipCount () {
+        int count = this.superClasses.size() + this.equivalentClasses.size();
+        for (Edges edges: this.restrictions) {
+            count += edges.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return Index into `classes` of the first class whose URI comes after
+     *   the given URI.
+     */
+    public int firstClassAfter (String uri) {
+        int low = 0;
+        int high = this.classes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.uris[this.classes[mid]].compareTo(uri) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies a class with all of its relationships into a record, e.g. for
+     * comparing it with another import.
+     */
+    public ClassRecord record (int id) {
+        ClassRecord record = new ClassRecord(this.uris[id], this.ontIDs[id]);
+        record.label = this.labels[id];
+        record.labelLang = this.labelLangs[id];
+        for (int i = this.superClasses.start(id); i < this.superClasses.end(id); i++) {
+            record.superClasses.add(this.reference(this.superClasses.targets[i], null));
+        }
+        for (int r = 0; r < this.restrictions.length; r++) {
+            Edges edges = this.restrictions[r];
+            for (int i = edges.start(id); i < edges.end(id); i++) {
+                record.restrictions.add(this.reference(edges.targets[i], this.restrictionTypes[r]));
+            }
+        }
+        for (int i = this.equivalentClasses.start(id); i < this.equivalentClasses.end(id); i++) {
+            record.equivalentClasses.add(this.reference(this.equivalentClasses.targets[i], null));
+        }
+        return record;
+    }
+
+    private ClassRecord.Reference reference (int id, String relationship) {
+        return new ClassRecord.Reference(this.uris[id], this.ontIDs[id], relationship);
+    }
+
+    /**
+     * Everything extracted for a single class. Other classes are referred to
+     * by their ID.
+     */
+    public static class Entry {
+        public final int id;
+        public String label;
+        public String labelLang;
+        public final IntList superClasses = new IntList(4);
+        public final IntList equivalentClasses = new IntList(2);
+        public final IntList restrictionTargets = new IntList(2);
+        public final List<String> restrictionTypes = new ArrayList<>(2);
+
+        public Entry (int id) {
+            this.id = id;
+        }
+
+        public void addRestriction (String relationship, int target) {
+            this.restrictionTypes.add(relationship);
+            this.restrictionTargets.add(target);
+        }
+    }
+
+    /**
+     * Collects IDs and entries. IDs may be requested by several extraction
+     * workers at the same time.
+     */
+    public static class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> uris = new ArrayList<>();
+        private final List<String> ontIDs = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final List<String> labelLangs = new ArrayList<>();
+        private final IntList classes = new IntList();
+
+        private final IntList superClassSources = new IntList();
+        private final IntList superClassTargets = new IntList();
+        private final IntList equivalentClassSources = new IntList();
+        private final IntList equivalentClassTargets = new IntList();
+        private final Map<String, IntList[]> restrictions = new HashMap<>();
+        private final List<String> restrictionTypes = new ArrayList<>();
+
+        /**
+         * @return The ID of the class, which is assigned on first use.
+         */
+        public synchronized int id (String uri, String ontID) {
+            Integer id = this.ids.get(uri);
+            if (id == null) {
+                id = this.uris.size();
+                this.ids.put(uri, id);
+                this.uris.add(uri);
+                this.ontIDs.add(ontID);
+                this.labels.add(null);
+                this.labelLangs.add(null);
+            }
+            return id;
+        }
+
+        /**
+         * @return The number of IDs assigned so far.
+         */
+        public synchronized int size () {
+            return this.uris.size();
+        }
+
+        /**
+         * @return The URI of a class which has been assigned an ID.
+         */
+        public synchronized String uri (int id) {
+            return this.uris.get(id);
+        }
+
+        /**
+         * Adds an extracted class. Classes have to be added in the order of
+         * their URIs.
+         */
+        public synchronized void add (Entry entry) {
+            this.addClass(entry.id);
+            this.setLabel(entry.id, entry.label, entry.labelLang);
+            for (int i = 0; i < entry.superClasses.size(); i++) {
+                this.addSuperClass(entry.id, entry.superClasses.get(i));
+            }
+            for (int i = 0; i < entry.equivalentClasses.size(); i++) {
+                this.addEquivalentClass(entry.id, entry.equivalentClasses.get(i));
+            }
+            for (int i = 0; i < entry.restrictionTargets.size(); i++) {
+                this.addRestriction(entry.id, entry.restrictionTypes.get(i), entry.restrictionTargets.get(i));
+            }
+        }
+
+        /**
+         * Marks a class as extracted. Like `add`, classes have to be added
+         * in the order of their URIs, but their relationships can be added
+         * at any time before `build`.
+         */
+        public synchronized void addClass (int id) {
+            this.classes.add(id);
+        }
+
+        public synchronized void setLabel (int id, String label, String labelLang) {
+            this.labels.set(id, label);
+            this.labelLangs.set(id, labelLang);
+        }
+
+        public synchronized void addSuperClass (int id, int superClass) {
+            this.superClassSources.add(id);
+            this.superClassTargets.add(superClass);
+        }
+
+        public synchronized void addEquivalentClass (int id, int equivalentClass) {
+            this.equivalentClassSources.add(id);
+            this.equivalentClassTargets.add(equivalentClass);
+        }
+
+        public synchronized void addRestriction (int id, String type, int target) {
+            IntList[] edges = this.restrictions.get(type);
+            if (edges == null) {
+                edges = new IntList[] {new IntList(), new IntList()};
+                this.restrictions.put(type, edges);
+                this.restrictionTypes.add(type);
+            }
+            edges[0].add(id);
+            edges[1].add(target);
+        }
+
+        public synchronized Taxonomy build () {
+            int size = this.uris.size();
+
+            Edges[] restrictions = new Edges[this.restrictionTypes.size()];
+            for (int r = 0; r < restrictions.length; r++) {
+                IntList[] edges = this.restrictions.get(this.restrictionTypes.get(r));
+                restrictions[r] = Edges.of(size, edges[0], edges[1]);
+            }
+
+            return new Taxonomy(
+                this.uris.toArray(new String[size]),
+                this.ontIDs.toArray(new String[size]),
+                this.labels.toArray(new String[size]),
+                this.labelLangs.toArray(new String[size]),
+                this.classes.toArray(),
+                Edges.of(size, this.superClassSources, this.superClassTargets),
+                Edges.of(size, this.equivalentClassSources, this.equivalentClassTargets),
+                this.restrictionTypes.toArray(new String[restrictions.length]),
+                restrictions
+            );
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of extracted classes, i.e. of the classified taxonomy, so
+ * that re-running an import of an unchanged ontology skips loading and
+ * reasoning entirely.
+ *
+ * Entries are keyed by a hash of the ontology file and the settings which
+ * influence extraction. Every entry additionally lists the local files the
+ * ontology imported together with their hashes, which are checked when the
+ * entry is read. Remote imports are assumed to be unchanged.
+ *
+ * Entries are gzipped binary files holding the arrays of the taxonomy.
+ * Strings are written once and referenced by their index afterwards since
+ * e.g. label languages repeat a lot.
+ */
+public class TaxonomyCache {
+
+    private static final int MAGIC = 0x4f324e43;  // "O2NC"
+    // 2: Classes are sorted by URI
+    // 3: Taxonomy arrays instead of class records
+    private static final int FORMAT_VERSION = 3;
+    private static final String EXTENSION = ".taxonomy";
+
+    // String references
+    private static final int NULL_STRING = -1;
+    private static final int NEW_STRING = -2;
+
+    // Arrays are read in chunks of at most this many elements, see `Reader.grow`
+    private static final int READ_CHUNK = 65536;
+
+    private final File directory;
+
+    public TaxonomyCache (File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param ontologyFile The OWL file to be imported.
+     * @param settings Everything else influencing the extracted classes, e.g. the reasoner.
+     */
+    public static String key (File ontologyFile, Collection<String> settings) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(hash(ontologyFile).getBytes(StandardCharsets.UTF_8));
+        // Settings are sorted so that e.g. the order of `--eqp` options doesn't matter
+        for (String setting: new TreeSet<>(settings)) {
+            digest.update((byte) 0);
+            digest.update(setting.getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(digest.digest());
+    }
+
+    public static String hash (File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] buffer = new byte[65536];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String hex (byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b: bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private File file (String key) {
+        return new File(this.directory, key + EXTENSION);
+    }
+
+    /**
+     * A cached taxonomy together with the ontology it has been extracted from.
+     */
+    public static class Entry {
+        public final String ontologyUri;
+        public final String versionIri;
+        public final Taxonomy taxonomy;
+
+        private Entry (String ontologyUri, String versionIri, Taxonomy taxonomy) {
+            this.ontologyUri = ontologyUri;
+            this.versionIri = versionIri;
+            this.taxonomy = taxonomy;
+        }
+    }
+
+    /**
+     * @return The entry or `null` if there is no valid entry for the key.
+     */
+    public Entry read (String key) {
+        return this.read(key, true);
+    }
+
+    /**
+     * Reads an entry even if the files it imported changed since, e.g. the
+     * snapshot of a previous import.
+     */
+    public Entry readOutdated (String key) {
+        return this.read(key, false);
+    }
+
+    private Entry read (String key, boolean checkImports) {
+        File file = this.file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader reader = new Reader(file)) {
+            return reader.read(key, checkImports);
+        } catch (IOException | RuntimeException e) {
+            // A broken entry, e.g. one truncated or corrupted on disk, is as good as no entry
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry. The entry only becomes visible once it has been written
+     * completely.
+     *
+     * @param localImports Path -> hash of the local files imported by the ontology.
+     */
+    public void write (String key, String ontologyUri, String versionIri, Map<String, String> localImports, Taxonomy taxonomy) throws IOException {
+        // Concurrent imports might create the directory at the same time
+        if (!this.directory.mkdirs() && !this.directory.isDirectory()) {
+            throw new IOException("Couldn't create cache directory " + this.directory);
+        }
+        File tmp = File.createTempFile(key, ".tmp", this.directory);
+        try {
+            try (Writer writer = new Writer(tmp)) {
+                writer.write(key, ontologyUri, versionIri, localImports, taxonomy);
+            }
+            Files.move(tmp.toPath(), this.file(key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private Writer (File file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 65536)));
+        }
+
+        private void write (String key, String ontologyUri, String versionIri, Map<String, String> localImports, Taxonomy taxonomy) throws IOException {
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(FORMAT_VERSION);
+            this.writeString(key);
+            this.writeString(ontologyUri);
+            this.writeString(versionIri);
+            this.out.writeInt(localImports.size());
+            for (Map.Entry<String, String> localImport: localImports.entrySet()) {
+                this.writeString(localImport.getKey());
+                this.writeString(localImport.getValue());
+            }
+
+            this.out.writeInt(taxonomy.size());
+            for (int id = 0; id < taxonomy.size(); id++) {
+                this.writeString(taxonomy.uris[id]);
+                this.writeString(taxonomy.ontIDs[id]);
+                this.writeString(taxonomy.labels[id]);
+                this.writeString(taxonomy.labelLangs[id]);
+            }
+            this.writeInts(taxonomy.classes);
+            this.writeEdges(taxonomy.superClasses);
+            this.writeEdges(taxonomy.equivalentClasses);
+            this.out.writeInt(taxonomy.restrictions.length);
+            for (int r = 0; r < taxonomy.restrictions.length; r++) {
+                this.writeString(taxonomy.restrictionTypes[r]);
+                this.writeEdges(taxonomy.restrictions[r]);
+            }
+        }
+
+        @Override
+        public void close () throws IOException {
+            this.out.close();
+        }
+
+        private void writeEdges (Taxonomy.Edges edges) throws IOException {
+            this.writeInts(edges.offsets);
+            this.writeInts(edges.targets);
+        }
+
+        private void writeInts (int[] ints) throws IOException {
+            this.out.writeInt(ints.length);
+            for (int i: ints) {
+                this.out.writeInt(i);
+            }
+        }
+
+        private void writeString (String s) throws IOException {
+            if (s == null) {
+                this.out.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = this.strings.get(s);
+            if (index != null) {
+                this.out.writeInt(index);
+                return;
+            }
+            this.strings.put(s, this.strings.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            this.out.writeInt(NEW_STRING);
+            this.out.writeInt(bytes.length);
+            this.out.write(bytes);
+        }
+    }
+
+    private static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        private Reader (File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)));
+        }
+
+        /**
+         * @return The entry or `null` if it's outdated or has been written for another key.
+         */
+        private Entry read (String key, boolean checkImports) throws IOException {
+            if (this.in.readInt() != MAGIC || this.in.readInt() != FORMAT_VERSION || !key.equals(this.readString())) {
+                return null;
+            }
+            String ontologyUri = this.readString();
+            String versionIri = this.readString();
+            int localImports = this.readLength();
+            for (int i = 0; i < localImports; i++) {
+                File file = new File(this.readString());
+                String hash = this.readString();
+                if (checkImports && (!file.isFile() || !hash.equals(hash(file)))) {
+                    return null;
+                }
+            }
+
+            int size = this.readLength();
+            String[] uris = new String[0];
+            String[] ontIDs = new String[0];
+            String[] labels = new String[0];
+            String[] labelLangs = new String[0];
+            for (int id = 0; id < size; id++) {
+                if (id == uris.length) {
+                    uris = Arrays.copyOf(uris, grow(id, size));
+                    ontIDs = Arrays.copyOf(ontIDs, uris.length);
+                    labels = Arrays.copyOf(labels, uris.length);
+                    labelLangs = Arrays.copyOf(labelLangs, uris.length);
+                }
+                uris[id] = this.readString();
+                ontIDs[id] = this.readString();
+                labels[id] = this.readString();
+                labelLangs[id] = this.readString();
+            }
+            int[] classes = this.readInts();
+            Taxonomy.Edges superClasses = this.readEdges();
+            Taxonomy.Edges equivalentClasses = this.readEdges();
+            int restrictionCount = this.readLength();
+            String[] restrictionTypes = new String[0];
+            Taxonomy.Edges[] restrictions = new Taxonomy.Edges[0];
+            for (int r = 0; r < restrictionCount; r++) {
+                if (r == restrictionTypes.length) {
+                    restrictionTypes = Arrays.copyOf(restrictionTypes, grow(r, restrictionCount));
+                    restrictions = Arrays.copyOf(restrictions, restrictionTypes.length);
+                }
+                restrictionTypes[r] = this.readString();
+                restrictions[r] = this.readEdges();
+            }
+
+            return new Entry(
+                ontologyUri,
+                versionIri,
+                new Taxonomy(
+                    uris, ontIDs, labels, labelLangs, classes, superClasses, equivalentClasses, restrictionTypes, restrictions
+                )
+            );
+        }
+
+        @Override
+        public void close () {
+            try {
+                this.in.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+
+        private Taxonomy.Edges readEdges () throws IOException {
+            return new Taxonomy.Edges(this.readInts(), this.readInts());
+        }
+
+        private int[] readInts () throws IOException {
+            int length = this.readLength();
+            int[] ints = new int[0];
+            for (int i = 0; i < length; i++) {
+                if (i == ints.length) {
+                    ints = Arrays.copyOf(ints, grow(i, length));
+                }
+                ints[i] = this.in.readInt();
+            }
+            return ints;
+        }
+
+        /**
+         * Lengths of corrupt entries may be anything, so arrays aren't
+         * allocated upfront but grow with the elements actually read. A
+         * length beyond the end of the file fails with an `EOFException` once
+         * the file has been read instead of allocating the array first.
+         *
+         * @return The new capacity of an array holding `read` of `length` elements.
+         */
+        private static int grow (int read, int length) {
+            return (int) Math.min(length, Math.max(READ_CHUNK, 2L * read));
+        }
+
+        private int readLength () throws IOException {
+            int length = this.in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid length " + length);
+            }
+            return length;
+        }
+
+        private String readString () throws IOException {
+            int index = this.in.readInt();
+            if (index == NULL_STRING) {
+                return null;
+            }
+            if (index != NEW_STRING) {
+                if (index < 0 || index >= this.strings.size()) {
+                    throw new IOException("Invalid string reference " + index);
+                }
+                return this.strings.get(index);
+            }
+            int length = this.readLength();
+            byte[] bytes = new byte[0];
+            while (bytes.length < length) {
+                int read = bytes.length;
+                bytes = Arrays.copyOf(bytes, grow(read, length));
+                this.in.readFully(bytes, read, bytes.length - read);
+            }
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            this.strings.add(s);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.refinery_platform.owl2neo4j;
+
+/**
+ * Settings shared by all graph sinks that send Cypher statements to Neo4J.
+ */
+public class WriteOptions {
+
+    // Retries keep the requests since the last commit to write them again, so the HTTP sink commits at least this
+    // often when retrying
+    public static int DEFAULT_RETRY_STATEMENTS_PER_COMMIT = 10000;
+
+    // Max. number of statements and payload bytes per request
+    public int statementsPerRequest = StatementBuffer.DEFAULT_MAX_STATEMENTS;
+    public int bytesPerRequest = StatementBuffer.DEFAULT_MAX_BYTES;
+
+    // Max. number of requests sent without waiting for their response. `0` waits for every response. Only used by
+    // the HTTP sink.
+    public int requestsInFlight = 0;
+
+    // Adapt the number of statements per request, starting at `statementsPerRequest`, to keep requests under this
+    // many milliseconds. `0` keeps it fixed. Only used by the HTTP sink.
+    public int targetLatency = 0;
+
+    // Max. number of retries of a request failing transiently, e.g. with a timeout or deadlock. Only used by the HTTP
+    // sink.
+    public int retries = 0;
+
+    // Gzip request payloads. Only used by the HTTP sink and requires a server, or proxy, accepting gzipped requests.
+    public boolean gzipRequests = false;
+
+    // Commit and start a new transaction after this many statements or seconds. `0` disables periodic commits.
+    public int statementsPerCommit = 0;
+    public int secondsPerCommit = 0;
+
+    // Write class nodes and relationships with UNWIND statements
+    public boolean bulk = false;
+    public int rowsPerChunk = BulkWriter.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * @return Statements per commit of the HTTP sink, which commits
+     *   periodically when retrying even if `statementsPerCommit` is `0`.
+     */
+    public int httpStatementsPerCommit () {
+        if (this.retries > 0 && this.statementsPerCommit <= 0) {
+            return DEFAULT_RETRY_STATEMENTS_PER_COMMIT;
+        }
+        return this.statementsPerCommit;
+    }
+}
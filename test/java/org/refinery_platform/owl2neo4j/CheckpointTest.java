@@ -0,0 +1,39 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replacesTheFileWithEveryCommit () throws Exception {
+        File file = new File(this.folder.getRoot(), "checkpoint.json");
+        Checkpoint checkpoint = new Checkpoint(file);
+        checkpoint.committed("ONE one.owl", "http://example.org/a");
+        checkpoint.committed("ONE one.owl", "http://example.org/b");
+        checkpoint.completed("TWO two.owl");
+
+        Checkpoint loaded = Checkpoint.load(file);
+        assertEquals("http://example.org/b", loaded.getLastClass("ONE one.owl"));
+        assertTrue(loaded.isCompleted("TWO two.owl"));
+        assertFalse(loaded.isCompleted("ONE one.owl"));
+        assertNull(loaded.getLastClass("TWO two.owl"));
+
+        // No temporary files are left behind
+        assertEquals(1, this.folder.getRoot().listFiles().length);
+
+        loaded.delete();
+        assertFalse(file.exists());
+    }
+}
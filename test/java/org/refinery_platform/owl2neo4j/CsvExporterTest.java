@@ -0,0 +1,112 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class CsvExporterTest {
+
+    private static final String THING = "http://www.w3.org/2002/07/owl#Thing";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesLabelsAsTheyAre () throws Exception {
+        String directory = this.folder.getRoot().getPath();
+        CsvNodeTable exported = new CsvNodeTable();
+        CsvExporter exporter = new CsvExporter(directory, "TST", exported, false);
+        exporter.open();
+        exporter.createNode("Class", "http://example.org/a", "TST:a");
+        exporter.setProperty("Class", "http://example.org/a", "rdfs:label", "Baker's \"dozen\"");
+        exporter.completeNode("Class", "http://example.org/a");
+        exporter.close();
+        exported.write();
+
+        List<String> nodes = lines(exporter.getNodeFile());
+        assertEquals(2, nodes.size());
+        assertEquals(
+            "\"http://example.org/a\",\"TST:a\",\"Baker's \"\"dozen\"\"\",,,,\"Class;TST\"",
+            nodes.get(1)
+        );
+    }
+
+    @Test
+    public void writesSharedNodesOncePerExport () throws Exception {
+        String directory = this.folder.getRoot().getPath();
+        CsvNodeTable exported = new CsvNodeTable();
+
+        CsvExporter first = new CsvExporter(directory, "ONE", exported, false);
+        first.open();
+        first.createNode("Class", THING, "OWL:Thing");
+        first.createNode("Class", "http://example.org/one", "ONE:one");
+        first.completeNode("Class", "http://example.org/one");
+        first.createRelationship("Class", "http://example.org/one", "Class", THING, "RDFS:subClassOf");
+        first.close();
+
+        CsvExporter second = new CsvExporter(directory, "TWO", exported, false);
+        second.open();
+        second.createNode("Class", THING, "OWL:Thing");
+        second.createNode("Class", "http://example.org/two", "TWO:two");
+        second.completeNode("Class", "http://example.org/two");
+        // Classes of other ontologies are only referenced
+        second.createNode("Class", "http://example.org/one", "ONE:one");
+        second.createRelationship("Class", "http://example.org/two", "Class", "http://example.org/one", "RDFS:subClassOf");
+        second.close();
+        exported.write();
+
+        assertEquals(2, first.getNodeCount());
+        assertEquals(1, second.getNodeCount());
+        List<String> nodes = lines(second.getNodeFile());
+        assertEquals(2, nodes.size());
+        assertTrue(nodes.get(1).startsWith("\"http://example.org/two\""));
+        // Relationships may refer to nodes of other files
+        assertEquals(2, lines(second.getRelationshipFile()).size());
+    }
+
+    @Test
+    public void mergesNodesReferencedBeforeTheyAreDefined () throws Exception {
+        String directory = this.folder.getRoot().getPath();
+        CsvNodeTable exported = new CsvNodeTable();
+
+        CsvExporter first = new CsvExporter(directory, "ONE", exported, false);
+        first.open();
+        first.createNode("Class", THING, "OWL:Thing");
+        first.createNode("Class", "http://example.org/one", "ONE:one");
+        first.completeNode("Class", "http://example.org/one");
+        // Defined by the second ontology
+        first.createNode("Class", "http://example.org/two", "ONE:two");
+        first.createRelationship("Class", "http://example.org/one", "Class", "http://example.org/two", "RDFS:subClassOf");
+        first.close();
+
+        CsvExporter second = new CsvExporter(directory, "TWO", exported, false);
+        second.open();
+        second.createNode("Class", THING, "OWL:Thing");
+        second.createNode("Class", "http://example.org/two", "TWO:two");
+        second.setProperty("Class", "http://example.org/two", "rdfs:label", "two");
+        second.setProperty("Class", "http://example.org/two", "labelLang", "en");
+        second.completeNode("Class", "http://example.org/two");
+        second.createRelationship("Class", "http://example.org/two", "Class", THING, "RDFS:subClassOf");
+        second.close();
+        exported.write();
+
+        // Shared nodes get the labels of every ontology referencing them
+        assertTrue(lines(first.getNodeFile()).contains("\"" + THING + "\",\"OWL:Thing\",,,,,\"Class;ONE;TWO\""));
+        assertEquals(2, first.getNodeCount());
+        List<String> nodes = lines(second.getNodeFile());
+        assertEquals(2, nodes.size());
+        assertEquals("\"http://example.org/two\",\"TWO:two\",\"two\",\"en\",,,\"Class;ONE;TWO\"", nodes.get(1));
+    }
+
+    private static List<String> lines (File file) throws Exception {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,83 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * `B`, `C` and the imported `A` are equivalent; `D` is a subclass of `C`.
+ */
+public class EquivalencesTest {
+
+    private static final String A = "http://example.org/imported#A";
+    private static final String BASE = "http://example.org/imported#Base";
+    private static final String B = "http://example.org/local#B";
+    private static final String C = "http://example.org/local#C";
+    private static final String D = "http://example.org/local#D";
+    private static final String TOP = "http://example.org/local#Top";
+
+    private static List<String> write (String... options) throws Exception {
+        File owl = new File(EquivalencesTest.class.getResource("/equivalences/local.owl").toURI());
+        List<String> args = new ArrayList<>(Arrays.asList("-o", owl.getPath(), "-n", "Local", "-a", "loc"));
+        args.addAll(Arrays.asList(options));
+        Owl2Neo4J ontImport = new Owl2Neo4J(args.toArray(new String[args.size()]));
+
+        RecordingSink sink = new RecordingSink();
+        ontImport.writeChanges(null, ontImport.extract(), sink);
+        List<String> relationships = new ArrayList<>();
+        for (String write: sink.writes) {
+            if (write.contains(" OWL:") || write.contains(" RDFS:")) {
+                relationships.add(write.substring("create ".length()));
+            }
+        }
+        return relationships;
+    }
+
+    @Test
+    public void prefersClassesOfTheOntologyAsCanonicalMember () throws Exception {
+        List<String> relationships = write();
+        // `B` has the smallest URI of the set apart from the imported `A`
+        assertTrue(relationships.contains(C + " OWL:equivalentClass " + B));
+        assertTrue(relationships.contains(B + " RDFS:subClassOf " + TOP));
+        assertTrue(relationships.contains(B + " RDFS:subClassOf " + BASE));
+        assertTrue(relationships.contains(D + " RDFS:subClassOf " + B));
+        for (String relationship: relationships) {
+            assertTrue(relationship, !relationship.startsWith(C + " RDFS:") && !relationship.contains(A));
+        }
+    }
+
+    @Test
+    public void picksTheSmallestUriAmongClassesOfTheImportClosure () throws Exception {
+        List<String> relationships = write("-i");
+        assertTrue(relationships.contains(B + " OWL:equivalentClass " + A));
+        assertTrue(relationships.contains(C + " OWL:equivalentClass " + A));
+        assertTrue(relationships.contains(A + " RDFS:subClassOf " + BASE));
+        assertTrue(relationships.contains(D + " RDFS:subClassOf " + A));
+        for (String relationship: relationships) {
+            assertTrue(relationship, !relationship.startsWith(A + " OWL:") && !relationship.startsWith(B + " RDFS:"));
+        }
+    }
+
+    @Test
+    public void relatesEveryMemberToEveryOtherWhenExpanded () throws Exception {
+        List<String> relationships = write("--expand-equivalences");
+        int equivalences = 0;
+        for (String relationship: relationships) {
+            if (relationship.contains(" OWL:equivalentClass ")) {
+                equivalences++;
+            }
+        }
+        // `B` and `C` to the two other members each
+        assertEquals(4, equivalences);
+        assertTrue(relationships.contains(B + " OWL:equivalentClass " + C));
+        assertTrue(relationships.contains(C + " OWL:equivalentClass " + B));
+        assertTrue(relationships.contains(C + " OWL:equivalentClass " + A));
+        assertTrue(relationships.contains(C + " RDFS:subClassOf " + TOP));
+    }
+}
@@ -0,0 +1,93 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExtractionPipelineTest {
+
+    private static List<Integer> items (int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private static List<Integer> run (int workers, int queueSize, List<Integer> items) throws Exception {
+        final List<Integer> consumed = new ArrayList<>();
+        new ExtractionPipeline<Integer, Integer>(workers, queueSize).run(
+            items,
+            new ExtractionPipeline.Extractor<Integer, Integer>() {
+                @Override
+                public Integer extract (Integer item) throws Exception {
+                    // Let later items overtake earlier ones
+                    Thread.sleep((item * 7) % 3);
+                    return item % 5 == 4 ? null : item * 10;
+                }
+            },
+            new ExtractionPipeline.Consumer<Integer>() {
+                @Override
+                public void accept (Integer record) {
+                    consumed.add(record);
+                }
+            }
+        );
+        return consumed;
+    }
+
+    private static List<Integer> expected (List<Integer> items) {
+        List<Integer> expected = new ArrayList<>();
+        for (int item: items) {
+            if (item % 5 != 4) {
+                expected.add(item * 10);
+            }
+        }
+        return expected;
+    }
+
+    @Test(timeout = 10000)
+    public void consumesRecordsInTheOrderOfTheirItems () throws Exception {
+        List<Integer> items = items(200);
+        assertEquals(expected(items), run(4, 16, items));
+    }
+
+    @Test(timeout = 10000)
+    public void finishesWithMoreWorkersThanQueueSlots () throws Exception {
+        List<Integer> items = items(50);
+        assertEquals(expected(items), run(4, 1, items));
+        assertEquals(expected(items), run(4, 3, items));
+        // Fewer items than workers
+        assertEquals(expected(items(2)), run(4, 1, items(2)));
+        assertEquals(expected(items(0)), run(4, 1, items(0)));
+    }
+
+    @Test(timeout = 10000)
+    public void rethrowsTheFailureOfAWorker () throws Exception {
+        try {
+            new ExtractionPipeline<Integer, Integer>(4, 2).run(
+                items(50),
+                new ExtractionPipeline.Extractor<Integer, Integer>() {
+                    @Override
+                    public Integer extract (Integer item) throws Exception {
+                        if (item == 17) {
+                            throw new Exception("broken " + item);
+                        }
+                        return item;
+                    }
+                },
+                new ExtractionPipeline.Consumer<Integer>() {
+                    @Override
+                    public void accept (Integer record) {}
+                }
+            );
+            fail("The failure should have been rethrown");
+        } catch (Exception e) {
+            assertEquals("broken 17", e.getMessage());
+        }
+    }
+}
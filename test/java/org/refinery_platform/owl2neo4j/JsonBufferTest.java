@@ -0,0 +1,68 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/** JSON **/
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+public class JsonBufferTest {
+
+    private static String encode (Object value) {
+        return new JsonBuffer(16).appendValue(value).toString();
+    }
+
+    @Test
+    public void escapesStrings () {
+        assertEquals("\"say \\\"hi\\\" \\\\ bye\"", encode("say \"hi\" \\ bye"));
+        assertEquals("\"a\\nb\\rc\\td\\be\\ff\\u0001\\u001f\"", encode("a\nb\rc\td\be\ff\u0001\u001f"));
+        // `/` doesn't need to be escaped
+        assertEquals("\"http://example.org/a#b\"", encode("http://example.org/a#b"));
+    }
+
+    @Test
+    public void encodesNonAsciiAsUtf8 () {
+        String s = "Gr\u00fc\u00dfe \u4e16\u754c \ud83c\udf55";
+        JsonBuffer buffer = new JsonBuffer(4).appendString(s);
+        byte[] expected = ("\"" + s + "\"").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, buffer.size());
+        assertEquals(new String(expected, StandardCharsets.UTF_8), buffer.toString());
+        // Unpaired surrogates are replaced
+        assertEquals("\"a?b?\"", encode("a\ud83cb\udf55"));
+    }
+
+    @Test
+    public void encodesParameters () {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("uri", "http://example.org/a");
+        row.put("labels", Arrays.asList("A", "\u00c4"));
+        row.put("count", 3);
+        row.put("empty", Collections.emptyList());
+        Map<Object, Object> other = new LinkedHashMap<>();
+        other.put(1, new LinkedHashSet<>(Arrays.asList(2L, 3L)));
+        row.put("other", other);
+        String json = encode(row);
+        assertEquals(
+            "{\"uri\":\"http://example.org/a\",\"labels\":[\"A\",\"\u00c4\"],\"count\":3,\"empty\":[],\"other\":{\"1\":[2,3]}}",
+            json
+        );
+        // Valid JSON as far as an independent parser is concerned
+        assertEquals("\u00c4", new JSONObject(json).getJSONArray("labels").getString(1));
+    }
+
+    @Test
+    public void readsRangesOfTheBuffer () {
+        JsonBuffer buffer = new JsonBuffer(4).appendRaw("[").appendString("\u00e9").appendRaw("]");
+        JsonBuffer copy = new JsonBuffer(1).append(buffer);
+        assertEquals("[\"\u00e9\"]", copy.toString());
+        assertEquals("\"\u00e9\"", copy.toString(1, copy.size() - 1));
+    }
+}
@@ -0,0 +1,63 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/** OWL API */
+import org.semanticweb.owlapi.apibinding.OWLManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LabelIndexTest {
+
+    private static final String IRI = "http://example.org/a";
+
+    private static String pick (List<String> languages, String... labels) {
+        String picked = null;
+        // Every order has to pick the same label
+        for (int start = 0; start < labels.length; start += 2) {
+            LabelIndex index = new LabelIndex(languages);
+            for (int i = 0; i < labels.length; i += 2) {
+                int j = (start + i) % labels.length;
+                index.add(IRI, labels[j], labels[j + 1]);
+            }
+            Owl2Neo4J.Label label = index.get(IRI);
+            String described = label.getText() + "@" + label.getLang();
+            if (picked != null) {
+                assertEquals(picked, described);
+            }
+            picked = described;
+        }
+        return picked;
+    }
+
+    @Test
+    public void prefersUntaggedThenEnglishLabelsByDefault () {
+        List<String> none = Collections.emptyList();
+        assertEquals("b@", pick(none, "a", "de", "c", "en", "b", ""));
+        assertEquals("c@en-GB", pick(none, "a", "de", "c", "en-GB", "d", "en"));
+        assertEquals("a@fr", pick(none, "b", "de", "a", "fr"));
+    }
+
+    @Test
+    public void prefersTheGivenLanguages () {
+        List<String> languages = Arrays.asList("de", "fr");
+        assertEquals("z@de", pick(languages, "z", "de", "a", "fr", "b", "", "c", "en"));
+        assertEquals("a@fr", pick(languages, "a", "fr", "b", "", "c", "en"));
+        // Other languages rank as without preferences
+        assertEquals("c@en", pick(languages, "c", "en", "b", "it"));
+    }
+
+    @Test
+    public void prefersLabelsOfTheOntologyOverImportedOnes () throws Exception {
+        LabelIndex index = new LabelIndex(Collections.<String>emptyList());
+        index.add(IRI, "z", "de");
+        // An ontology without labels, i.e. the following ones are imported
+        index.index(OWLManager.createOWLOntologyManager().createOntology());
+        index.add(IRI, "a", "");
+        assertEquals("z@de", index.get(IRI).getText() + "@" + index.get(IRI).getLang());
+    }
+}
@@ -0,0 +1,48 @@
+package org.refinery_platform.owl2neo4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records what would have been written.
+ */
+class RecordingSink implements GraphSink {
+    final List<String> writes = new ArrayList<>();
+
+    @Override
+    public void open () {}
+
+    @Override
+    public void createNode (String nodeLabel, String uri, String name) {
+        this.writes.add("create " + uri);
+    }
+
+    @Override
+    public void setProperty (String nodeLabel, String uri, String propertyName, String propertyValue) {
+        this.writes.add("set " + uri + " " + propertyName + "=" + propertyValue);
+    }
+
+    @Override
+    public void completeNode (String nodeLabel, String uri) {}
+
+    @Override
+    public void createRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        this.writes.add("create " + srcUri + " " + relationship + " " + destUri);
+    }
+
+    @Override
+    public void removeProperty (String nodeLabel, String uri, String propertyName) {
+        this.writes.add("remove " + uri + " " + propertyName);
+    }
+
+    @Override
+    public void deleteRelationship (String srcLabel, String srcUri, String destLabel, String destUri, String relationship) {
+        this.writes.add("delete " + srcUri + " " + relationship + " " + destUri);
+    }
+
+    @Override
+    public void commit () {}
+
+    @Override
+    public void close () {}
+}
@@ -0,0 +1,71 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class ResponseScannerTest {
+
+    private static ResponseScanner scan (String response) throws IOException {
+        return ResponseScanner.scan(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void countsResultsOfSuccessfulRequests () throws Exception {
+        ResponseScanner response = scan(
+            "{\"commit\":\"http://localhost:7474/db/data/transaction/1/commit\",\n" +
+                "  \"results\" : [ {\"columns\":[],\"data\":[]}, {\"columns\":[\"n\"],\"data\":[{\"row\":[{\"a\":[1,2.5e3,true,null]}]}]} ],\n" +
+                "  \"transaction\":{\"expires\":\"Fri, 16 Oct 2026 12:00:00 +0000\"},\"errors\":[]}"
+        );
+        assertEquals(2, response.results);
+        assertFalse(response.hasError());
+        assertNull(response.errorCode);
+    }
+
+    @Test
+    public void readsTheFirstError () throws Exception {
+        ResponseScanner response = scan(
+            "{\"results\":[],\"errors\":[" +
+                "{\"code\":\"Neo.TransientError.Transaction.DeadlockDetected\",\"message\":\"a \\\"quoted\\\"\\nmessage\"}," +
+                "{\"code\":\"Neo.ClientError.Other\",\"message\":\"second\"}]}"
+        );
+        assertTrue(response.hasError());
+        assertEquals(0, response.results);
+        assertEquals("Neo.TransientError.Transaction.DeadlockDetected", response.errorCode);
+        assertEquals("a \"quoted\"\nmessage", response.errorMessage);
+    }
+
+    @Test
+    public void decodesEscapedAndRawUnicode () throws Exception {
+        ResponseScanner response = scan(
+            "{\"errors\":[{\"code\":\"X\",\"message\":\"\\u00e9 \u00e9 \\u4e16 \\ud83c\\udf55 \ud83c\udf55 \\/ \\u0000\"}]}"
+        );
+        assertEquals("\u00e9 \u00e9 \u4e16 \ud83c\udf55 \ud83c\udf55 / \u0000", response.errorMessage);
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates () throws Exception {
+        ResponseScanner response = scan(
+            "{\"errors\":[{\"message\":\"\\ud83c \\udf55\\ud83c\\ud83c\\udf55\\ud83c\"}]}"
+        );
+        assertEquals("? ??\ud83c\udf55?", response.errorMessage);
+    }
+
+    @Test
+    public void rejectsTruncatedResponses () {
+        try {
+            scan("{\"results\":[{\"columns\":[]");
+            fail("A truncated response should be rejected");
+        } catch (IOException e) {
+            assertEquals("Unexpected end of response", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Apache HTTP client */
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.HttpHostConnectException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import javax.net.ssl.SSLHandshakeException;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void retriesFailuresOfTheConnection () {
+        assertTrue(RetryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+        assertTrue(RetryPolicy.isTransient(new SocketException("Connection reset")));
+        assertTrue(RetryPolicy.isTransient(new NoHttpResponseException("localhost:7474 failed to respond")));
+        assertTrue(RetryPolicy.isTransient(new HttpHostConnectException(new ConnectException("Connection refused"), null)));
+        // As wrapped by Unirest
+        assertTrue(RetryPolicy.isTransient(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+    }
+
+    @Test
+    public void retriesTransientNeo4JErrors () {
+        assertTrue(RetryPolicy.isTransient(
+            new RetryPolicy.TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock")
+        ));
+        assertTrue(RetryPolicy.isTransientError("Neo.TransientError.General.OutOfMemoryError"));
+        assertFalse(RetryPolicy.isTransientError("Neo.ClientError.Security.Unauthorized"));
+        assertFalse(RetryPolicy.isTransientError(null));
+    }
+
+    @Test
+    public void failsOnEverythingElse () {
+        assertFalse(RetryPolicy.isTransient(new UnknownHostException("neo4j.example.org")));
+        assertFalse(RetryPolicy.isTransient(new SSLHandshakeException("PKIX path building failed")));
+        assertFalse(RetryPolicy.isTransient(new IOException(new SSLHandshakeException("PKIX path building failed"))));
+        // E.g. an HTML page instead of JSON, or a rejected login
+        assertFalse(RetryPolicy.isTransient(new IOException("Unexpected response: expected '{' but found '<'")));
+        assertFalse(RetryPolicy.isTransient(new IOException("Neo.ClientError.Security.Unauthorized")));
+        assertFalse(RetryPolicy.isTransient(new Exception("Neo.ClientError.Statement.SyntaxError")));
+    }
+
+    @Test
+    public void recognizesOverload () {
+        assertTrue(RetryPolicy.isOverload(new SocketTimeoutException("Read timed out")));
+        assertTrue(RetryPolicy.isOverload(
+            new RetryPolicy.TransientException("Neo.TransientError.General.OutOfMemoryError", "out of memory")
+        ));
+        assertFalse(RetryPolicy.isOverload(
+            new RetryPolicy.TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock")
+        ));
+    }
+
+    @Test
+    public void limitsTheDelay () {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long delay = policy.delay(attempt);
+            assertTrue(delay >= 0 && delay <= Math.min(1000, 100L << Math.min(attempt, 30)));
+        }
+        assertFalse(new RetryPolicy(0).isEnabled());
+    }
+
+    @Test
+    public void commitsPeriodicallyWhenRetrying () {
+        WriteOptions options = new WriteOptions();
+        assertEquals(0, options.httpStatementsPerCommit());
+        options.retries = 3;
+        assertEquals(WriteOptions.DEFAULT_RETRY_STATEMENTS_PER_COMMIT, options.httpStatementsPerCommit());
+        options.statementsPerCommit = 500;
+        assertEquals(500, options.httpStatementsPerCommit());
+    }
+}
@@ -0,0 +1,156 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StatementBufferTest {
+
+    /**
+     * Keeps the requests instead of sending them.
+     */
+    private static class RecordingBuffer extends StatementBuffer {
+        final List<String> payloads = new ArrayList<>();
+        final List<Integer> sizes = new ArrayList<>();
+        final List<String> kinds = new ArrayList<>();
+
+        RecordingBuffer (int maxStatements, int maxBytes) {
+            super(null, null, maxStatements, maxBytes, false, false, null, new Metrics("TEST"));
+        }
+
+        @Override
+        protected void send (JsonBuffer payload, IntList offsets, List<String> errorTitles, String kind) {
+            this.payloads.add(payload.toString());
+            this.sizes.add(offsets.size());
+            this.kinds.add(kind);
+            this.buffers.release(payload);
+        }
+    }
+
+    private static void add (StatementBuffer buffer, StatementWriter.Kind kind, String uri) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("classUri", uri);
+        buffer.add(
+            kind,
+            "MERGE (n:`Class` {uri:{classUri}});",
+            parameters,
+            "Error creating a node",
+            Collections.<String>emptyList(),
+            Collections.<String>emptyList()
+        );
+    }
+
+    @Test
+    public void sendsFullRequestsAndTheRestOnFlush () {
+        RecordingBuffer buffer = new RecordingBuffer(3, StatementBuffer.DEFAULT_MAX_BYTES);
+        for (int i = 0; i < 7; i++) {
+            add(buffer, StatementWriter.Kind.NODE, "http://example.org/" + i);
+        }
+        assertEquals(2, buffer.payloads.size());
+        assertEquals(1, buffer.size());
+
+        buffer.flush();
+        assertEquals(3, buffer.payloads.size());
+        assertEquals(Integer.valueOf(3), buffer.sizes.get(0));
+        assertEquals(Integer.valueOf(3), buffer.sizes.get(1));
+        assertEquals(Integer.valueOf(1), buffer.sizes.get(2));
+        assertEquals(0, buffer.size());
+
+        // Flushing an empty buffer doesn't send anything
+        buffer.flush();
+        assertEquals(3, buffer.payloads.size());
+    }
+
+    @Test
+    public void encodesStatementsAsOneStatementsArray () {
+        RecordingBuffer buffer = new RecordingBuffer(10, StatementBuffer.DEFAULT_MAX_BYTES);
+        add(buffer, StatementWriter.Kind.NODE, "http://example.org/a");
+        add(buffer, StatementWriter.Kind.NODE, "http://example.org/b");
+        buffer.flush();
+        assertEquals(
+            "{\"statements\":[" +
+                "{\"statement\":\"MERGE (n:`Class` {uri:{classUri}});\",\"parameters\":{\"classUri\":\"http://example.org/a\"}}," +
+                "{\"statement\":\"MERGE (n:`Class` {uri:{classUri}});\",\"parameters\":{\"classUri\":\"http://example.org/b\"}}" +
+                "]}",
+            buffer.payloads.get(0)
+        );
+    }
+
+    @Test
+    public void splitsRequestsAtTheByteLimit () {
+        RecordingBuffer measure = new RecordingBuffer(10, StatementBuffer.DEFAULT_MAX_BYTES);
+        add(measure, StatementWriter.Kind.NODE, "http://example.org/0");
+        measure.flush();
+        int single = measure.payloads.get(0).length();
+
+        // Room for two statements but not for three
+        RecordingBuffer buffer = new RecordingBuffer(10, 2 * single);
+        for (int i = 0; i < 5; i++) {
+            add(buffer, StatementWriter.Kind.NODE, "http://example.org/" + i);
+        }
+        buffer.flush();
+        assertEquals(3, buffer.payloads.size());
+        assertEquals(Integer.valueOf(2), buffer.sizes.get(0));
+        assertEquals(Integer.valueOf(2), buffer.sizes.get(1));
+        assertEquals(Integer.valueOf(1), buffer.sizes.get(2));
+        for (String payload: buffer.payloads) {
+            assertEquals(true, payload.length() <= 2 * single);
+        }
+    }
+
+    @Test
+    public void recordsTheKindOfRequests () {
+        RecordingBuffer buffer = new RecordingBuffer(2, StatementBuffer.DEFAULT_MAX_BYTES);
+        add(buffer, StatementWriter.Kind.NODE, "http://example.org/a");
+        add(buffer, StatementWriter.Kind.NODE, "http://example.org/b");
+        add(buffer, StatementWriter.Kind.NODE, "http://example.org/c");
+        add(buffer, StatementWriter.Kind.PROPERTY, "http://example.org/c");
+        assertEquals(StatementWriter.Kind.NODE.key(), buffer.kinds.get(0));
+        assertEquals(Metrics.MIXED, buffer.kinds.get(1));
+    }
+
+    @Test
+    public void attributesAnErrorToTheFirstStatementWithoutResult () throws Exception {
+        JsonBuffer payload = new JsonBuffer(256);
+        IntList offsets = new IntList();
+        payload.appendRaw("{\"statements\":[");
+        String[] statements = {"{\"statement\":\"A\"}", "{\"statement\":\"B\"}", "{\"statement\":\"C\"}"};
+        for (int i = 0; i < statements.length; i++) {
+            if (i > 0) {
+                payload.appendRaw(',');
+            }
+            offsets.add(payload.size());
+            payload.appendRaw(statements[i]);
+        }
+        payload.appendRaw("]}");
+
+        // Neo4J returns results for the statements before the failing one only
+        ResponseScanner response = scan(
+            "{\"results\":[{\"columns\":[],\"data\":[]}]," +
+                "\"errors\":[{\"code\":\"Neo.ClientError.Statement.SyntaxError\",\"message\":\"boom\"}]}"
+        );
+        int failed = StatementBuffer.failedStatement(response, offsets);
+        assertEquals(1, failed);
+        assertEquals("{\"statement\":\"B\"}", StatementBuffer.statement(payload, offsets, failed));
+
+        // The last statement ends before the closing brackets of the payload
+        response = scan(
+            "{\"results\":[{},{}],\"errors\":[{\"code\":\"Neo.ClientError.Statement.SyntaxError\",\"message\":\"boom\"}]}"
+        );
+        failed = StatementBuffer.failedStatement(response, offsets);
+        assertEquals(2, failed);
+        assertEquals("{\"statement\":\"C\"}", StatementBuffer.statement(payload, offsets, failed));
+    }
+
+    private static ResponseScanner scan (String response) throws Exception {
+        return ResponseScanner.scan(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,74 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Streaming has to extract the same taxonomy as the structural reasoner,
+ * which only reports asserted relationships as well.
+ */
+public class StreamingExtractorTest {
+
+    private static final String PART_OF = "http://example.org/test.owl#partOf";
+
+    private static List<String> extract (String... options) throws Exception {
+        File owl = new File(StreamingExtractorTest.class.getResource("/pizza.owl").toURI());
+        List<String> args = new ArrayList<>(Arrays.asList("-o", owl.getPath(), "-n", "Test", "-a", "tst", "--eqp", PART_OF));
+        args.addAll(Arrays.asList(options));
+        Taxonomy taxonomy = new Owl2Neo4J(args.toArray(new String[args.size()])).extract();
+
+        List<String> classes = new ArrayList<>();
+        for (int id: taxonomy.classes) {
+            classes.add(describe(taxonomy.record(id)));
+        }
+        return classes;
+    }
+
+    private static String describe (ClassRecord record) {
+        TreeSet<String> relationships = new TreeSet<>();
+        for (ClassRecord.Reference reference: record.superClasses) {
+            relationships.add("subClassOf " + reference.uri + " (" + reference.ontID + ")");
+        }
+        for (ClassRecord.Reference reference: record.restrictions) {
+            relationships.add(reference.relationship + " " + reference.uri + " (" + reference.ontID + ")");
+        }
+        for (ClassRecord.Reference reference: record.equivalentClasses) {
+            relationships.add("equivalentClass " + reference.uri + " (" + reference.ontID + ")");
+        }
+        return record.uri + " (" + record.ontID + ") " + record.label + "@" + record.labelLang + " " + relationships;
+    }
+
+    @Test
+    public void extractsWhatTheStructuralReasonerDoes () throws Exception {
+        List<String> streamed = extract("--stream");
+        assertEquals(extract("-r", "structural"), streamed);
+        assertEquals(6, streamed.size());
+        assertEquals(
+            "http://purl.obolibrary.org/obo/TST_0000001 (TST:0000001) cheese \"topping\"@en [" +
+                "TST:partOf http://example.org/test.owl#Pizza (TST:Pizza), " +
+                "subClassOf http://example.org/test.owl#Topping (TST:Topping)]",
+            streamed.get(5)
+        );
+        // Labels of several languages without --label-lang
+        assertTrue(streamed.contains(
+            "http://example.org/test.owl#Pizza (TST:Pizza) pizza@en [" +
+                "equivalentClass http://example.org/test.owl#Pie (TST:Pie)]"
+        ));
+    }
+
+    @Test
+    public void extractsNestedRestrictionsAndExpandedEquivalences () throws Exception {
+        assertEquals(
+            extract("-r", "structural", "--nested-restrictions", "--expand-equivalences", "--label-lang", "de"),
+            extract("--stream", "--nested-restrictions", "--expand-equivalences", "--label-lang", "de")
+        );
+    }
+}
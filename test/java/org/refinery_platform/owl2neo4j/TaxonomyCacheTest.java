@@ -0,0 +1,191 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class TaxonomyCacheTest {
+
+    private static final String KEY = "test";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Taxonomy taxonomy () {
+        Taxonomy.Builder builder = new Taxonomy.Builder();
+        int thing = builder.id("http://www.w3.org/2002/07/owl#Thing", "Thing");
+        int a = builder.id("http://example.org/a", "TST:a");
+        int b = builder.id("http://example.org/b", "TST:b");
+        int c = builder.id("http://example.org/c", "TST:c");
+
+        Taxonomy.Entry entry = new Taxonomy.Entry(a);
+        entry.label = "A";
+        entry.labelLang = "en";
+        entry.superClasses.add(thing);
+        builder.add(entry);
+
+        entry = new Taxonomy.Entry(b);
+        entry.label = "B";
+        entry.labelLang = "en";
+        entry.superClasses.add(a);
+        entry.addRestriction("TST:partOf", a);
+        builder.add(entry);
+
+        entry = new Taxonomy.Entry(c);
+        entry.superClasses.add(a);
+        entry.equivalentClasses.add(b);
+        builder.add(entry);
+        return builder.build();
+    }
+
+    @Test
+    public void readsWhatItWrote () throws Exception {
+        TaxonomyCache cache = new TaxonomyCache(this.folder.getRoot());
+        Taxonomy written = taxonomy();
+        cache.write(KEY, "http://example.org/", "http://example.org/1.0", Collections.<String, String>emptyMap(), written);
+
+        TaxonomyCache.Entry entry = cache.read(KEY);
+        assertEquals("http://example.org/", entry.ontologyUri);
+        assertEquals("http://example.org/1.0", entry.versionIri);
+        Taxonomy read = entry.taxonomy;
+        assertArrayEquals(written.uris, read.uris);
+        assertArrayEquals(written.ontIDs, read.ontIDs);
+        assertArrayEquals(written.labels, read.labels);
+        assertArrayEquals(written.labelLangs, read.labelLangs);
+        assertArrayEquals(written.classes, read.classes);
+        assertEdges(written.superClasses, read.superClasses);
+        assertEdges(written.equivalentClasses, read.equivalentClasses);
+        assertArrayEquals(written.restrictionTypes, read.restrictionTypes);
+        for (int r = 0; r < written.restrictions.length; r++) {
+            assertEdges(written.restrictions[r], read.restrictions[r]);
+        }
+
+        // Entries of other keys are misses
+        assertNull(cache.read("other"));
+    }
+
+    @Test
+    public void ignoresEntriesWhoseImportsChanged () throws Exception {
+        File imported = this.folder.newFile("imported.owl");
+        Files.write(imported.toPath(), "<rdf:RDF/>".getBytes(StandardCharsets.UTF_8));
+        TaxonomyCache cache = new TaxonomyCache(this.folder.newFolder("cache"));
+        cache.write(
+            KEY,
+            "http://example.org/",
+            null,
+            Collections.singletonMap(imported.getPath(), TaxonomyCache.hash(imported)),
+            taxonomy()
+        );
+        Files.write(imported.toPath(), "<rdf:RDF></rdf:RDF>".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(cache.read(KEY));
+        assertEquals("http://example.org/", cache.readOutdated(KEY).ontologyUri);
+    }
+
+    @Test
+    public void keysDependOnTheSettings () throws Exception {
+        File owl = this.folder.newFile("test.owl");
+        String key = TaxonomyCache.key(owl, Arrays.asList("acronym=ONE", "eqp=a", "eqp=b"));
+        assertEquals(key, TaxonomyCache.key(owl, Arrays.asList("eqp=b", "acronym=ONE", "eqp=a")));
+        assertNotEquals(key, TaxonomyCache.key(owl, Arrays.asList("acronym=TWO", "eqp=a", "eqp=b")));
+    }
+
+    @Test
+    public void treatsCorruptEntriesAsMisses () throws Exception {
+        File directory = this.folder.getRoot();
+        TaxonomyCache cache = new TaxonomyCache(directory);
+        cache.write(KEY, "http://example.org/", null, Collections.<String, String>emptyMap(), taxonomy());
+        File file = new File(directory, KEY + ".taxonomy");
+        byte[] header = Arrays.copyOf(uncompressed(file), 8);
+
+        // Truncated
+        byte[] compressed = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(compressed, compressed.length / 2));
+        assertNull(cache.read(KEY));
+
+        // Negative string length
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(header);
+        out.writeInt(-2);
+        out.writeInt(-5);
+        compress(bytes.toByteArray(), file);
+        assertNull(cache.read(KEY));
+
+        // Reference to a string which hasn't been written
+        bytes.reset();
+        out.write(header);
+        out.writeInt(7);
+        compress(bytes.toByteArray(), file);
+        assertNull(cache.read(KEY));
+
+        // Lengths far beyond the end of the file must not be allocated
+        bytes.reset();
+        out.write(header);
+        out.writeInt(-2);
+        out.writeInt(Integer.MAX_VALUE - 8);
+        out.write(KEY.getBytes(StandardCharsets.UTF_8));
+        compress(bytes.toByteArray(), file);
+        assertNull(cache.read(KEY));
+
+        bytes.reset();
+        out.write(header);
+        writeString(out, KEY);
+        writeString(out, "http://example.org/");
+        out.writeInt(-1);
+        out.writeInt(0);
+        out.writeInt(Integer.MAX_VALUE - 8);
+        writeString(out, "http://example.org/a");
+        compress(bytes.toByteArray(), file);
+        assertNull(cache.read(KEY));
+    }
+
+    private static void writeString (DataOutputStream out, String s) throws Exception {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(-2);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void assertEdges (Taxonomy.Edges expected, Taxonomy.Edges actual) {
+        assertArrayEquals(expected.offsets, actual.offsets);
+        assertArrayEquals(expected.targets, actual.targets);
+    }
+
+    private static byte[] uncompressed (File file) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void compress (byte[] bytes, File file) throws Exception {
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(bytes);
+        }
+    }
+}
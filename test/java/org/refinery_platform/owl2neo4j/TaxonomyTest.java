@@ -0,0 +1,91 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TaxonomyTest {
+
+    private static IntList ints (int... values) {
+        IntList list = new IntList();
+        for (int value: values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Test
+    public void sortsEdgesBySourceAndKeepsTheirOrder () {
+        Taxonomy.Edges edges = Taxonomy.Edges.of(4, ints(2, 0, 2, 3, 0), ints(10, 11, 12, 13, 14));
+        assertArrayEquals(new int[] {0, 2, 2, 4, 5}, edges.offsets);
+        assertArrayEquals(new int[] {11, 14, 10, 12, 13}, edges.targets);
+        assertEquals(5, edges.size());
+        // Classes without edges have an empty range
+        assertEquals(edges.start(1), edges.end(1));
+        assertEquals(2, edges.start(2));
+        assertEquals(4, edges.end(2));
+    }
+
+    @Test
+    public void buildsTheTaxonomyOfItsEntries () {
+        Taxonomy.Builder builder = new Taxonomy.Builder();
+        int thing = builder.id("http://www.w3.org/2002/07/owl#Thing", "Thing");
+        int a = builder.id("http://example.org/a", "TST:a");
+        int b = builder.id("http://example.org/b", "TST:b");
+        // Referenced, but not extracted itself
+        int x = builder.id("http://example.org/other/x", "OTHER:x");
+        assertEquals(a, builder.id("http://example.org/a", "ignored"));
+
+        Taxonomy.Entry entry = new Taxonomy.Entry(a);
+        entry.label = "A";
+        entry.labelLang = "en";
+        entry.superClasses.add(thing);
+        entry.addRestriction("TST:partOf", x);
+        builder.add(entry);
+
+        entry = new Taxonomy.Entry(b);
+        entry.superClasses.add(a);
+        entry.superClasses.add(x);
+        entry.equivalentClasses.add(a);
+        entry.addRestriction("TST:hasPart", a);
+        entry.addRestriction("TST:partOf", a);
+        builder.add(entry);
+
+        Taxonomy taxonomy = builder.build();
+        assertEquals(4, taxonomy.size());
+        assertArrayEquals(new int[] {a, b}, taxonomy.classes);
+        assertEquals(7, taxonomy.relationshipCount());
+        assertArrayEquals(new String[] {"TST:partOf", "TST:hasPart"}, taxonomy.restrictionTypes);
+
+        ClassRecord record = taxonomy.record(b);
+        assertEquals("http://example.org/b", record.uri);
+        assertNull(record.label);
+        assertEquals(2, record.superClasses.size());
+        assertEquals("http://example.org/a", record.superClasses.get(0).uri);
+        assertEquals("OTHER:x", record.superClasses.get(1).ontID);
+        assertEquals(1, record.equivalentClasses.size());
+        assertEquals(2, record.restrictions.size());
+        assertEquals("TST:partOf", record.restrictions.get(0).relationship);
+        assertEquals("TST:hasPart", record.restrictions.get(1).relationship);
+
+        record = taxonomy.record(a);
+        assertEquals("A", record.label);
+        assertEquals("en", record.labelLang);
+        assertEquals("http://www.w3.org/2002/07/owl#Thing", record.superClasses.get(0).uri);
+    }
+
+    @Test
+    public void findsTheFirstClassAfterAUri () {
+        Taxonomy.Builder builder = new Taxonomy.Builder();
+        for (String uri: new String[] {"http://example.org/b", "http://example.org/d", "http://example.org/f"}) {
+            builder.add(new Taxonomy.Entry(builder.id(uri, null)));
+        }
+        Taxonomy taxonomy = builder.build();
+        assertEquals(0, taxonomy.firstClassAfter("http://example.org/a"));
+        assertEquals(1, taxonomy.firstClassAfter("http://example.org/b"));
+        assertEquals(2, taxonomy.firstClassAfter("http://example.org/e"));
+        assertEquals(3, taxonomy.firstClassAfter("http://example.org/f"));
+    }
+}
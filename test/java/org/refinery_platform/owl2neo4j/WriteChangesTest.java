@@ -0,0 +1,138 @@
+package org.refinery_platform.owl2neo4j;
+
+/** JUnit */
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+public class WriteChangesTest {
+
+    private static final String THING = "http://www.w3.org/2002/07/owl#Thing";
+    private static final String A = "http://example.org/a";
+    private static final String B = "http://example.org/b";
+    private static final String C = "http://example.org/c";
+    private static final String D = "http://example.org/d";
+    private static final String E = "http://example.org/e";
+
+    private static class TaxonomyBuilder {
+        final Taxonomy.Builder builder = new Taxonomy.Builder();
+
+        TaxonomyBuilder add (String uri, String label, String superClass) {
+            return this.add(uri, label, superClass, null, null);
+        }
+
+        TaxonomyBuilder add (String uri, String label, String superClass, String restriction, String filler) {
+            Taxonomy.Entry entry = new Taxonomy.Entry(this.id(uri));
+            entry.label = label;
+            entry.superClasses.add(this.id(superClass));
+            if (restriction != null) {
+                entry.addRestriction(restriction, this.id(filler));
+            }
+            this.builder.add(entry);
+            return this;
+        }
+
+        int id (String uri) {
+            return this.builder.id(uri, uri.substring(uri.lastIndexOf('/') + 1));
+        }
+
+        Taxonomy build () {
+            return this.builder.build();
+        }
+    }
+
+    private static Owl2Neo4J newImport () {
+        return new Owl2Neo4J(new String[] {"-o", "test.owl", "-n", "Test", "-a", "tst"});
+    }
+
+    @Test
+    public void writesOnlyWhatChanged () throws Exception {
+        Taxonomy previous = new TaxonomyBuilder()
+            .add(A, "A", THING)
+            .add(B, "B", A, "TST:partOf", A)
+            .add(C, "C", A)
+            .add(E, "E", A)
+            .build();
+        Taxonomy current = new TaxonomyBuilder()
+            .add(A, "A2", THING)
+            .add(B, "B", THING)
+            .add(D, null, A)
+            .add(E, "E", A)
+            .build();
+
+        RecordingSink sink = new RecordingSink();
+        int[] changes = newImport().writeChanges(previous, current, sink);
+
+        assertArrayEquals(new int[] {1, 2, 1}, changes);
+        assertEquals(
+            Arrays.asList(
+                "set " + A + " rdfs:label=A2",
+                "create " + B + " RDFS:subClassOf " + THING,
+                "delete " + B + " RDFS:subClassOf " + A,
+                "delete " + B + " TST:partOf " + A,
+                "delete " + C + " RDFS:subClassOf " + A,
+                "create " + D,
+                "create " + A,
+                "create " + D + " RDFS:subClassOf " + A
+            ),
+            sink.writes
+        );
+    }
+
+    @Test
+    public void writesEverythingWithoutPreviousImport () throws Exception {
+        Taxonomy current = new TaxonomyBuilder()
+            .add(A, "A", THING)
+            .add(B, null, A)
+            .build();
+
+        RecordingSink sink = new RecordingSink();
+        int[] changes = newImport().writeChanges(null, current, sink);
+
+        assertArrayEquals(new int[] {2, 0, 0}, changes);
+        assertEquals(
+            Arrays.asList(
+                "create " + A,
+                "set " + A + " rdfs:label=A",
+                "create " + A + " RDFS:subClassOf " + THING,
+                "create " + B,
+                "create " + B + " RDFS:subClassOf " + A
+            ),
+            sink.writes
+        );
+    }
+
+    @Test
+    public void deletesEquivalencesInTheDirectionTheyWereWritten () throws Exception {
+        TaxonomyBuilder previous = new TaxonomyBuilder().add(A, "A", THING);
+        Taxonomy.Entry entry = new Taxonomy.Entry(previous.id(B));
+        entry.equivalentClasses.add(previous.id(A));
+        previous.builder.add(entry);
+        Taxonomy current = new TaxonomyBuilder().add(A, "A", THING).add(B, null, THING).build();
+
+        RecordingSink sink = new RecordingSink();
+        newImport().writeChanges(previous.build(), current, sink);
+
+        assertEquals(
+            Arrays.asList(
+                "create " + B + " RDFS:subClassOf " + THING,
+                "delete " + B + " OWL:equivalentClass " + A
+            ),
+            sink.writes
+        );
+    }
+
+    @Test
+    public void removesLabelsWhichDisappeared () throws Exception {
+        Taxonomy previous = new TaxonomyBuilder().add(A, "A", THING).build();
+        Taxonomy current = new TaxonomyBuilder().add(A, " ", THING).build();
+
+        RecordingSink sink = new RecordingSink();
+        int[] changes = newImport().writeChanges(previous, current, sink);
+
+        assertArrayEquals(new int[] {0, 1, 0}, changes);
+        assertEquals(Arrays.asList("remove " + A + " rdfs:label"), sink.writes);
+    }
+}